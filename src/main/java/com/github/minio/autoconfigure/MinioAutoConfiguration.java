@@ -1,14 +1,51 @@
 package com.github.minio.autoconfigure;
 
+import com.github.minio.core.DedupUploader;
+import com.github.minio.core.ExtendedMinioAsyncClient;
 import com.github.minio.core.MinioAsyncTemplate;
 import com.github.minio.core.MinioTemplate;
-import io.minio.MinioAsyncClient;
-import io.minio.MinioClient;
+import com.github.minio.core.PartBufferPool;
+import com.github.minio.core.PartBufferPoolMetrics;
+import com.github.minio.core.RequestCoalescer;
+import com.github.minio.core.RequestCoalescerMetrics;
+import com.github.minio.core.RoutingMinioAsyncTemplate;
+import com.github.minio.core.RoutingMinioTemplate;
+import com.github.minio.core.SpoolUploadQueue;
+import com.github.minio.core.SpoolUploadQueueMetrics;
+import com.github.minio.core.UploadSweeper;
+import com.github.minio.core.UploadSweeperMetrics;
+import com.github.minio.trace.MicrometerTraceListener;
+import com.github.minio.trace.MinioRequestTracer;
+import com.github.minio.trace.RequestTraceListener;
+import com.github.minio.web.MinioObjectResponder;
+import com.github.minio.web.ReactiveMinioObjectResponder;
+import com.google.common.base.Suppliers;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 自动配置类
@@ -19,45 +56,521 @@ import org.springframework.context.annotation.Bean;
 @AutoConfiguration
 @EnableConfigurationProperties(MinioProperties.class)
 public class MinioAutoConfiguration {
+
+    private static final Log log = LogFactory.getLog(MinioAutoConfiguration.class);
+
     /**
-     * 同步客户端模板
+     * 客户端工厂
+     *
+     * @param properties 配置文件
+     * @param tracer     请求追踪器
+     * @return MinioClientFactory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MinioClientFactory minioClientFactory(MinioProperties properties, ObjectProvider<MinioRequestTracer> tracer) {
+        MinioClientFactory clientFactory = new MinioClientFactory(properties);
+        tracer.ifAvailable(clientFactory::setEventListenerFactory);
+        return clientFactory;
+    }
+
+    /**
+     * 请求追踪器
+     *
+     * @param properties 配置文件
+     * @param listeners  请求耗时监听器
+     * @return MinioRequestTracer
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio", name = "traceEnable", havingValue = "true")
+    public MinioRequestTracer minioRequestTracer(MinioProperties properties,
+                                                 ObjectProvider<RequestTraceListener> listeners) {
+        MinioRequestTracer tracer = new MinioRequestTracer(properties.getSlowRequestThreshold());
+        listeners.orderedStream().forEach(tracer::addListener);
+        return tracer;
+    }
+
+    /**
+     * 分片缓冲池，配置内存预算后生效
+     *
+     * @param properties 配置文件
+     * @return PartBufferPool
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.buffer", name = "max-bytes")
+    public PartBufferPool minioPartBufferPool(MinioProperties properties) {
+        return new PartBufferPool(properties.getBuffer().getMaxBytes(), properties.getPartSize(),
+                properties.getBuffer().getAcquireTimeout());
+    }
+
+    /**
+     * 异步上传队列，配置落盘目录后生效，关闭时未完成的上传保留在目录中
+     *
+     * @param properties 配置文件
+     * @return SpoolUploadQueue
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.spool", name = "directory")
+    public SpoolUploadQueue minioSpoolUploadQueue(MinioProperties properties) {
+        MinioProperties.Spool spool = properties.getSpool();
+        SpoolUploadQueue queue = new SpoolUploadQueue(Paths.get(spool.getDirectory()), spool.getFsync(),
+                spool.getWorkers(), spool.getRetryInterval(), spool.getMaxRetries());
+        queue.setMaxBytes(spool.getMaxBytes());
+        return queue;
+    }
+
+    /**
+     * 请求合并，开启后同一文件并发的信息查询与小文件读取只发起一个请求
      *
      * @param properties 配置文件
+     * @return RequestCoalescer
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.coalesce", name = "enable", havingValue = "true")
+    public RequestCoalescer minioRequestCoalescer(MinioProperties properties) {
+        return new RequestCoalescer(properties.getCoalesce().getMaxObjectSize(),
+                properties.getCoalesce().getMaxBytes(), properties.getCoalesce().getThreads());
+    }
+
+    /**
+     * 未完成分片上传与过期分片文件清理，应用启动完成后由MinioSweeperListener开始定时执行
+     * <p>
+     * 只清理默认集群，清理的桶路由到其他集群时启动失败
+     *
+     * @param properties    配置文件
+     * @param clientFactory 客户端工厂
+     * @return UploadSweeper
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.sweeper", name = "enable", havingValue = "true")
+    public UploadSweeper minioUploadSweeper(MinioProperties properties, MinioClientFactory clientFactory) {
+        MinioProperties.Sweeper sweeper = properties.getSweeper();
+        List<String> buckets = sweeper.getBuckets().isEmpty()
+                ? Collections.singletonList(properties.getBucketName()) : sweeper.getBuckets();
+        //清理只访问默认集群，路由到其他集群的桶直接失败，避免清理错误的集群
+        for (Map.Entry<String, MinioProperties.Cluster> cluster : properties.getClusters().entrySet()) {
+            for (String bucket : buckets) {
+                if (cluster.getValue().getBuckets().contains(bucket)) {
+                    throw new IllegalStateException("minio sweeper only covers the default cluster, bucket "
+                            + bucket + " is routed to cluster " + cluster.getKey());
+                }
+            }
+        }
+        UploadSweeper uploadSweeper = new UploadSweeper(clientFactory::createAsyncClient, buckets,
+                sweeper.getChunkPrefixes(), sweeper.getMaxAge(), sweeper.getConcurrency(), sweeper.getRateLimit());
+        uploadSweeper.setLockObject(sweeper.getLockObject());
+        uploadSweeper.setLockTtl(sweeper.getLockTtl());
+        uploadSweeper.setBatchSize(sweeper.getBatchSize());
+        uploadSweeper.setAllowUnconditionalLock(sweeper.getAllowUnconditionalLock());
+        return uploadSweeper;
+    }
+
+    /**
+     * 应用启动完成后开始定时清理
+     *
+     * @param uploadSweeper 清理
+     * @param properties    配置文件
+     * @return MinioSweeperListener
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio.sweeper", name = "enable", havingValue = "true")
+    public MinioSweeperListener minioSweeperListener(UploadSweeper uploadSweeper, MinioProperties properties) {
+        return new MinioSweeperListener(uploadSweeper, properties.getSweeper());
+    }
+
+    /**
+     * 同步客户端模板
+     *
+     * @param properties       配置文件
+     * @param clientFactory    客户端工厂
+     * @param partBufferPool   分片缓冲池
+     * @param spoolUploadQueue 异步上传队列
+     * @param requestCoalescer 请求合并
      * @return MinioTemplate
+     * @throws IOException 恢复异步上传队列失败
      */
     @Bean(name = "minioTemplate")
     @ConditionalOnMissingBean
-    public MinioTemplate minioTemplate(MinioProperties properties) {
+    public MinioTemplate minioTemplate(MinioProperties properties, MinioClientFactory clientFactory,
+                                       ObjectProvider<PartBufferPool> partBufferPool,
+                                       ObjectProvider<SpoolUploadQueue> spoolUploadQueue,
+                                       ObjectProvider<RequestCoalescer> requestCoalescer) throws IOException {
+        MinioTemplate template = createTemplate(properties, clientFactory, partBufferPool.getIfAvailable());
+        requestCoalescer.ifAvailable(template::setRequestCoalescer);
+        SpoolUploadQueue queue = spoolUploadQueue.getIfAvailable();
+        if (queue != null) {
+            template.setSpoolUploadQueue(queue);
+        }
+        return template;
+    }
+
+    /**
+     * 多集群客户端工厂，配置spring.minio.clusters后生效，每个集群使用独立的连接池
+     *
+     * @param properties    配置文件
+     * @param clientFactory 默认集群客户端工厂
+     * @param tracer        请求追踪器
+     * @return MinioClusterClientFactories
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(OnMinioClustersCondition.class)
+    public MinioClusterClientFactories minioClusterClientFactories(MinioProperties properties,
+                                                                   MinioClientFactory clientFactory,
+                                                                   ObjectProvider<MinioRequestTracer> tracer) {
+        MinioClusterClientFactories factories = new MinioClusterClientFactories(clientFactory);
+        for (Map.Entry<String, MinioProperties.Cluster> cluster : properties.getClusters().entrySet()) {
+            String name = cluster.getKey();
+            MinioProperties clusterProperties = properties.forCluster(name);
+            MinioClientFactory clusterFactory = new MinioClientFactory(clusterProperties);
+            //请求指标按集群打标签
+            tracer.ifAvailable(t -> clusterFactory.setEventListenerFactory(t.forCluster(name)));
+            factories.addCluster(name, clusterProperties, clusterFactory, cluster.getValue().getBuckets());
+        }
+        return factories;
+    }
+
+    /**
+     * 多集群路由模板，配置spring.minio.clusters后生效
+     * <p>
+     * 需注入MinioOperations或RoutingMinioTemplate才会按桶名称路由，MinioTemplate仍是默认集群的模板
+     *
+     * @param properties       配置文件
+     * @param minioTemplate    默认集群模板
+     * @param clusterFactories 多集群客户端工厂
+     * @param partBufferPool   分片缓冲池
+     * @param requestCoalescer 请求合并
+     * @return RoutingMinioTemplate
+     */
+    @Bean
+    @Primary
+    @ConditionalOnMissingBean
+    @Conditional(OnMinioClustersCondition.class)
+    public RoutingMinioTemplate routingMinioTemplate(MinioProperties properties, MinioTemplate minioTemplate,
+                                                     MinioClusterClientFactories clusterFactories,
+                                                     ObjectProvider<PartBufferPool> partBufferPool,
+                                                     ObjectProvider<RequestCoalescer> requestCoalescer) {
+        RoutingMinioTemplate routingTemplate = new RoutingMinioTemplate(minioTemplate);
+        for (Map.Entry<String, MinioProperties.Cluster> cluster : properties.getClusters().entrySet()) {
+            String name = cluster.getKey();
+            //异步上传队列只作用于默认集群，其他集群直接上传
+            MinioTemplate template = createTemplate(clusterFactories.getProperties(name),
+                    clusterFactories.getFactories().get(name), partBufferPool.getIfAvailable());
+            //请求合并按集群名称区分，避免不同集群同名桶中的文件互相共享
+            requestCoalescer.ifAvailable(c -> template.setRequestCoalescer(c, name));
+            routingTemplate.addCluster(name, template, cluster.getValue().getBuckets());
+        }
+        return routingTemplate;
+    }
+
+    /**
+     * 创建同步客户端模板
+     *
+     * @param properties     配置文件
+     * @param clientFactory  客户端工厂
+     * @param partBufferPool 分片缓冲池，可为null
+     * @return MinioTemplate
+     */
+    private static MinioTemplate createTemplate(MinioProperties properties, MinioClientFactory clientFactory,
+                                                PartBufferPool partBufferPool) {
         MinioTemplate template = new MinioTemplate();
-        //minio同步客户端
-        template.setMinioClient(MinioClient.builder()
-                .endpoint(properties.getHost())
-                .credentials(properties.getAccessKey(), properties.getSecretKey())
-                .build());
         //设置配置
         template.setProperties(properties);
+        if (partBufferPool != null) {
+            template.setPartBufferPool(partBufferPool);
+        }
+        if (properties.getDedup().getEnable()) {
+            template.setDedupUploader(createDedupUploader(properties.getDedup()));
+        }
+        //服务端复制使用的异步客户端，首次使用时才创建
+        template.setMinioAsyncClientSupplier(clientFactory::createAsyncClient);
+        //minio同步客户端，懒加载时首次使用才创建
+        if (properties.getLazyInit()) {
+            if (properties.getWarmupEnable()) {
+                log.warn("minio lazyInit is enabled, warm up skipped");
+            }
+            template.setMinioClientSupplier(clientFactory::createClient);
+            return template;
+        }
+        template.setMinioClient(clientFactory.createClient());
+        if (properties.getWarmupEnable()) {
+            //后台预热，由MinioWarmUpListener在应用就绪前等待结果
+            template.warmUpAsync(properties.getWarmupConnections(), properties.getWarmupTimeout());
+        }
         return template;
     }
 
     /**
      * 异步客户端模板1
      *
-     * @param properties 配置文件
+     * @param properties       配置文件
+     * @param clientFactory    客户端工厂
+     * @param partBufferPool   分片缓冲池
+     * @param spoolUploadQueue 异步上传队列
+     * @param requestCoalescer 请求合并
      * @return MinioAsyncTemplate
+     * @throws IOException 恢复异步上传队列失败
      */
     @Bean(name = "minioAsyncTemplate")
     @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "spring.minio", name = "asyncEnable", havingValue = "true")
-    public MinioAsyncTemplate minioAsyncTemplate(MinioProperties properties) {
+    public MinioAsyncTemplate minioAsyncTemplate(MinioProperties properties, MinioClientFactory clientFactory,
+                                                 ObjectProvider<PartBufferPool> partBufferPool,
+                                                 ObjectProvider<SpoolUploadQueue> spoolUploadQueue,
+                                                 ObjectProvider<RequestCoalescer> requestCoalescer)
+            throws IOException {
+        MinioAsyncTemplate template = createAsyncTemplate(properties, clientFactory, partBufferPool.getIfAvailable());
+        requestCoalescer.ifAvailable(template::setRequestCoalescer);
+        SpoolUploadQueue queue = spoolUploadQueue.getIfAvailable();
+        if (queue != null) {
+            template.setSpoolUploadQueue(queue);
+        }
+        return template;
+    }
+
+    /**
+     * 多集群异步路由模板，配置spring.minio.clusters并开启异步模板后生效，与RoutingMinioTemplate使用相同的路由
+     * <p>
+     * 需注入MinioAsyncOperations或RoutingMinioAsyncTemplate才会按桶名称路由，MinioAsyncTemplate仍是默认集群的模板
+     *
+     * @param properties         配置文件
+     * @param minioAsyncTemplate 默认集群异步模板
+     * @param clusterFactories   多集群客户端工厂
+     * @param partBufferPool     分片缓冲池
+     * @param requestCoalescer   请求合并
+     * @return RoutingMinioAsyncTemplate
+     */
+    @Bean
+    @Primary
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio", name = "asyncEnable", havingValue = "true")
+    @Conditional(OnMinioClustersCondition.class)
+    public RoutingMinioAsyncTemplate routingMinioAsyncTemplate(MinioProperties properties,
+                                                               MinioAsyncTemplate minioAsyncTemplate,
+                                                               MinioClusterClientFactories clusterFactories,
+                                                               ObjectProvider<PartBufferPool> partBufferPool,
+                                                               ObjectProvider<RequestCoalescer> requestCoalescer) {
+        RoutingMinioAsyncTemplate routingTemplate = new RoutingMinioAsyncTemplate(minioAsyncTemplate);
+        for (Map.Entry<String, MinioProperties.Cluster> cluster : properties.getClusters().entrySet()) {
+            String name = cluster.getKey();
+            //异步上传队列只作用于默认集群，其他集群直接上传
+            MinioAsyncTemplate template = createAsyncTemplate(clusterFactories.getProperties(name),
+                    clusterFactories.getFactories().get(name), partBufferPool.getIfAvailable());
+            //请求合并按集群名称区分，避免不同集群同名桶中的文件互相共享
+            requestCoalescer.ifAvailable(c -> template.setRequestCoalescer(c, name));
+            routingTemplate.addCluster(name, template, cluster.getValue().getBuckets());
+        }
+        return routingTemplate;
+    }
+
+    /**
+     * 创建异步客户端模板
+     *
+     * @param properties     配置文件
+     * @param clientFactory  客户端工厂
+     * @param partBufferPool 分片缓冲池，可为null
+     * @return MinioAsyncTemplate
+     */
+    private static MinioAsyncTemplate createAsyncTemplate(MinioProperties properties,
+                                                          MinioClientFactory clientFactory,
+                                                          PartBufferPool partBufferPool) {
         MinioAsyncTemplate template = new MinioAsyncTemplate();
-        //minio异步客户端
-        template.setMinioClient(MinioAsyncClient.builder()
-                .endpoint(properties.getHost())
-                .credentials(properties.getAccessKey(), properties.getSecretKey())
-                .build());
         //设置配置
         template.setProperties(properties);
+        if (partBufferPool != null) {
+            template.setPartBufferPool(partBufferPool);
+        }
+        if (properties.getDedup().getEnable()) {
+            template.setDedupUploader(createDedupUploader(properties.getDedup()));
+        }
+        //minio异步客户端，懒加载时首次使用才创建
+        if (properties.getLazyInit()) {
+            if (properties.getWarmupEnable()) {
+                log.warn("minio lazyInit is enabled, warm up skipped");
+            }
+            template.setMinioClientSupplier(clientFactory::createAsyncClient);
+            return template;
+        }
+        template.setMinioClient(clientFactory.createAsyncClient());
+        if (properties.getWarmupEnable()) {
+            //后台预热，由MinioWarmUpListener在应用就绪前等待结果
+            template.warmUpAsync(properties.getWarmupConnections(), properties.getWarmupTimeout());
+        }
         return template;
     }
 
+    /**
+     * 应用就绪前等待连接预热完成
+     *
+     * @param minioTemplate        同步客户端模板
+     * @param minioAsyncTemplate   异步客户端模板
+     * @param routingMinioTemplate 多集群路由模板
+     * @param routingMinioAsyncTemplate 多集群异步路由模板
+     * @return MinioWarmUpListener
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.minio", name = "warmupEnable", havingValue = "true")
+    public MinioWarmUpListener minioWarmUpListener(ObjectProvider<MinioTemplate> minioTemplate,
+                                                   ObjectProvider<MinioAsyncTemplate> minioAsyncTemplate,
+                                                   ObjectProvider<RoutingMinioTemplate> routingMinioTemplate,
+                                                   ObjectProvider<RoutingMinioAsyncTemplate> routingMinioAsyncTemplate) {
+        return new MinioWarmUpListener(minioTemplate, minioAsyncTemplate, routingMinioTemplate,
+                routingMinioAsyncTemplate);
+    }
+
+    /**
+     * 创建去重上传，每个模板使用独立的存在查询缓存
+     *
+     * @param dedup 去重上传配置
+     * @return DedupUploader
+     */
+    private static DedupUploader createDedupUploader(MinioProperties.Dedup dedup) {
+        String tempDirectory = dedup.getTempDirectory() != null
+                ? dedup.getTempDirectory() : System.getProperty("java.io.tmpdir");
+        return new DedupUploader(dedup.getPrefix(), Paths.get(tempDirectory), dedup.getCacheSize(),
+                dedup.getCacheTtl());
+    }
+
+    /**
+     * micrometer指标配置，存在micrometer时生效
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MinioMetricsConfiguration {
+        /**
+         * 请求耗时直方图
+         *
+         * @return MicrometerTraceListener
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "spring.minio", name = "traceEnable", havingValue = "true")
+        public MicrometerTraceListener minioMicrometerTraceListener() {
+            return new MicrometerTraceListener();
+        }
+
+        /**
+         * 分片缓冲池指标
+         *
+         * @param partBufferPool 分片缓冲池
+         * @return PartBufferPoolMetrics
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "spring.minio.buffer", name = "max-bytes")
+        public PartBufferPoolMetrics minioPartBufferPoolMetrics(PartBufferPool partBufferPool) {
+            return new PartBufferPoolMetrics(partBufferPool);
+        }
+
+        /**
+         * 异步上传队列指标
+         *
+         * @param spoolUploadQueue 异步上传队列
+         * @return SpoolUploadQueueMetrics
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "spring.minio.spool", name = "directory")
+        public SpoolUploadQueueMetrics minioSpoolUploadQueueMetrics(SpoolUploadQueue spoolUploadQueue) {
+            return new SpoolUploadQueueMetrics(spoolUploadQueue);
+        }
+
+        /**
+         * 请求合并指标
+         *
+         * @param requestCoalescer 请求合并
+         * @return RequestCoalescerMetrics
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "spring.minio.coalesce", name = "enable", havingValue = "true")
+        public RequestCoalescerMetrics minioRequestCoalescerMetrics(RequestCoalescer requestCoalescer) {
+            return new RequestCoalescerMetrics(requestCoalescer);
+        }
+
+        /**
+         * 清理指标
+         *
+         * @param uploadSweeper 清理
+         * @return UploadSweeperMetrics
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "spring.minio.sweeper", name = "enable", havingValue = "true")
+        public UploadSweeperMetrics minioUploadSweeperMetrics(UploadSweeper uploadSweeper) {
+            return new UploadSweeperMetrics(uploadSweeper);
+        }
+    }
+
+    /**
+     * Spring MVC文件响应配置
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnClass({HttpServletRequest.class, HttpHeaders.class})
+    static class MinioServletResponderConfiguration {
+        /**
+         * 文件响应
+         *
+         * @param clientFactory    客户端工厂
+         * @param clusterFactories 多集群客户端工厂
+         * @return MinioObjectResponder
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public MinioObjectResponder minioObjectResponder(MinioClientFactory clientFactory,
+                                                         ObjectProvider<MinioClusterClientFactories> clusterFactories) {
+            return new MinioObjectResponder(responderClients(clientFactory, clusterFactories.getIfAvailable()));
+        }
+    }
+
+    /**
+     * Spring WebFlux文件响应配置
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @ConditionalOnClass({Mono.class, HttpHeaders.class})
+    static class MinioReactiveResponderConfiguration {
+        /**
+         * 文件响应
+         *
+         * @param clientFactory    客户端工厂
+         * @param clusterFactories 多集群客户端工厂
+         * @return ReactiveMinioObjectResponder
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public ReactiveMinioObjectResponder reactiveMinioObjectResponder(MinioClientFactory clientFactory,
+                ObjectProvider<MinioClusterClientFactories> clusterFactories) {
+            return new ReactiveMinioObjectResponder(responderClients(clientFactory, clusterFactories.getIfAvailable()));
+        }
+    }
+
+    /**
+     * 文件响应使用的客户端，按桶名称选择集群，与RoutingMinioTemplate的路由一致，每个集群的客户端首次使用时才创建
+     *
+     * @param clientFactory    默认集群客户端工厂
+     * @param clusterFactories 多集群客户端工厂，未配置多集群时为null
+     * @return 桶名称到客户端的映射
+     */
+    static Function<String, ExtendedMinioAsyncClient> responderClients(MinioClientFactory clientFactory,
+                                                                       MinioClusterClientFactories clusterFactories) {
+        Supplier<ExtendedMinioAsyncClient> defaultClient = Suppliers.memoize(
+                () -> new ExtendedMinioAsyncClient(clientFactory.createAsyncClient()));
+        if (clusterFactories == null) {
+            return bucketName -> defaultClient.get();
+        }
+        Map<MinioClientFactory, Supplier<ExtendedMinioAsyncClient>> clients = new IdentityHashMap<>();
+        for (MinioClientFactory factory : clusterFactories.getFactories().values()) {
+            clients.put(factory, Suppliers.memoize(() -> new ExtendedMinioAsyncClient(factory.createAsyncClient())));
+        }
+        return bucketName -> clients.getOrDefault(clusterFactories.route(bucketName), defaultClient).get();
+    }
 }
@@ -0,0 +1,120 @@
+package com.github.minio.autoconfigure;
+
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * minio客户端工厂，同一集群的同步与异步客户端共用同一个http连接池
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioClientFactory {
+    /**
+     * http默认超时时间，与minio客户端保持一致，单位：分钟
+     */
+    private static final long DEFAULT_TIMEOUT = 5;
+
+    private final MinioProperties properties;
+
+    /**
+     * 连接地址
+     */
+    private final String endpoint;
+
+    private volatile OkHttpClient httpClient;
+
+    private EventListener.Factory eventListenerFactory;
+
+    public MinioClientFactory(MinioProperties properties) {
+        this(properties, properties.getHost());
+    }
+
+    /**
+     * @param properties 配置文件
+     * @param endpoint   连接地址，替代配置中的host，不修改配置
+     */
+    public MinioClientFactory(MinioProperties properties, String endpoint) {
+        this.properties = properties;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * 设置http事件监听，需在创建客户端之前设置
+     *
+     * @param eventListenerFactory 事件监听工厂
+     */
+    public void setEventListenerFactory(EventListener.Factory eventListenerFactory) {
+        this.eventListenerFactory = eventListenerFactory;
+    }
+
+    /**
+     * 创建同步客户端
+     *
+     * @return MinioClient
+     */
+    public MinioClient createClient() {
+        return MinioClient.builder()
+                .endpoint(endpoint)
+                .credentials(properties.getAccessKey(), properties.getSecretKey())
+                .httpClient(getHttpClient())
+                .build();
+    }
+
+    /**
+     * 创建异步客户端
+     *
+     * @return MinioAsyncClient
+     */
+    public MinioAsyncClient createAsyncClient() {
+        return MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(properties.getAccessKey(), properties.getSecretKey())
+                .httpClient(getHttpClient())
+                .build();
+    }
+
+    /**
+     * 获取共享的http客户端，首次调用时创建
+     *
+     * @return OkHttpClient
+     */
+    public OkHttpClient getHttpClient() {
+        OkHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = buildHttpClient();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private OkHttpClient buildHttpClient() {
+        //预热的连接数不能超过连接池容量与并发数，否则预热的连接会被立即回收
+        int warmup = properties.getWarmupEnable() ? properties.getWarmupConnections() : 0;
+        int maxIdle = Math.max(properties.getMaxIdleConnections(), warmup);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(Math.max(properties.getMaxRequests(), warmup));
+        dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost()));
+        long timeout = TimeUnit.MINUTES.toMillis(DEFAULT_TIMEOUT);
+        OkHttpClient.Builder builder = HttpUtils.newDefaultHttpClient(timeout, timeout, timeout)
+                .newBuilder()
+                .connectionPool(new ConnectionPool(maxIdle, properties.getKeepAliveDuration(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher);
+        if (eventListenerFactory != null) {
+            builder.eventListenerFactory(eventListenerFactory);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.minio.autoconfigure;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多集群客户端工厂，按桶名称选择集群，未配置路由的桶使用默认集群
+ * <p>
+ * 同一集群的同步、异步路由模板与文件响应共用一个客户端工厂，即共用同一个http连接池
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioClusterClientFactories {
+
+    private final MinioClientFactory defaultFactory;
+
+    private final Map<String, MinioClientFactory> factories = new LinkedHashMap<>();
+
+    private final Map<String, MinioProperties> properties = new HashMap<>();
+
+    /**
+     * 桶名称与集群名称的对应关系
+     */
+    private final Map<String, String> routes = new HashMap<>();
+
+    public MinioClusterClientFactories(MinioClientFactory defaultFactory) {
+        this.defaultFactory = defaultFactory;
+    }
+
+    /**
+     * 添加集群
+     *
+     * @param name       集群名称
+     * @param properties 集群配置
+     * @param factory    集群客户端工厂
+     * @param buckets    路由到该集群的桶名称
+     */
+    public void addCluster(String name, MinioProperties properties, MinioClientFactory factory,
+                           List<String> buckets) {
+        factories.put(name, factory);
+        this.properties.put(name, properties);
+        for (String bucket : buckets) {
+            String previous = routes.put(bucket, name);
+            if (previous != null && !previous.equals(name)) {
+                throw new IllegalArgumentException("minio bucket routed to more than one cluster: " + bucket);
+            }
+        }
+    }
+
+    /**
+     * 集群名称与客户端工厂，不含默认集群
+     *
+     * @return map
+     */
+    public Map<String, MinioClientFactory> getFactories() {
+        return Collections.unmodifiableMap(factories);
+    }
+
+    /**
+     * 获取集群配置
+     *
+     * @param name 集群名称
+     * @return 集群配置
+     */
+    public MinioProperties getProperties(String name) {
+        MinioProperties clusterProperties = properties.get(name);
+        if (clusterProperties == null) {
+            throw new IllegalArgumentException("minio cluster not configured: " + name);
+        }
+        return clusterProperties;
+    }
+
+    /**
+     * 按桶名称选择集群名称
+     *
+     * @param bucketName 桶名称
+     * @return 集群名称，使用默认集群时为null
+     */
+    public String routeCluster(String bucketName) {
+        return routes.get(bucketName);
+    }
+
+    /**
+     * 按桶名称选择客户端工厂
+     *
+     * @param bucketName 桶名称
+     * @return 客户端工厂
+     */
+    public MinioClientFactory route(String bucketName) {
+        String name = routes.get(bucketName);
+        return name == null ? defaultFactory : factories.get(name);
+    }
+}
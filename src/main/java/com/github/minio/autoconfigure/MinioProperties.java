@@ -2,6 +2,11 @@ package com.github.minio.autoconfigure;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * minio配置信息
  *
@@ -41,6 +46,91 @@ public class MinioProperties {
      */
     private String prefixLink;
 
+    /**
+     * 连接池最大空闲连接数
+     */
+    private int maxIdleConnections = 5;
+
+    /**
+     * 连接池空闲连接保活时间，单位：毫秒
+     */
+    private long keepAliveDuration = 300000;
+
+    /**
+     * 单个minio地址的最大并发请求数，超过时排队，仅限制异步客户端
+     */
+    private int maxRequests = 5;
+
+    /**
+     * 启动预热开关，开启后启动时预先建立连接并检查默认桶
+     */
+    private boolean warmupEnable;
+
+    /**
+     * 预热时预先建立的连接数
+     */
+    private int warmupConnections = 4;
+
+    /**
+     * 预热超时时间，单位：毫秒
+     */
+    private long warmupTimeout = 30000;
+
+    /**
+     * 懒加载开关，开启后客户端在首次使用时才创建，与预热互斥
+     */
+    private boolean lazyInit;
+
+    /**
+     * 请求追踪开关，开启后记录每个请求的各网络阶段耗时
+     */
+    private boolean traceEnable;
+
+    /**
+     * 慢请求阈值，超过该耗时的请求打印各阶段耗时日志，单位：毫秒
+     */
+    private long slowRequestThreshold = 1000;
+
+    /**
+     * 服务端复制并发数，用于大文件分片复制及按前缀复制
+     */
+    private int copyConcurrency = 8;
+
+    /**
+     * 异步模板中读取上传流的线程数，用于缓冲池上传及去重上传
+     */
+    private int uploadThreads = 8;
+
+    /**
+     * 上传缓冲池配置
+     */
+    private final Buffer buffer = new Buffer();
+
+    /**
+     * 异步上传队列配置
+     */
+    private final Spool spool = new Spool();
+
+    /**
+     * 去重上传配置
+     */
+    private final Dedup dedup = new Dedup();
+
+    /**
+     * 请求合并配置
+     */
+    private final Coalesce coalesce = new Coalesce();
+
+    /**
+     * 未完成分片上传与过期分片文件清理配置
+     */
+    private final Sweeper sweeper = new Sweeper();
+
+    /**
+     * 多集群配置，key为集群名称，每个集群使用独立的连接池，未配置的项沿用上面的配置
+     */
+    private final Map<String, Cluster> clusters = new LinkedHashMap<>();
+
     public boolean getAsyncEnable() {
         return asyncEnable;
     }
@@ -96,4 +186,675 @@ public class MinioProperties {
     public void setPrefixLink(String prefixLink) {
         this.prefixLink = prefixLink;
     }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public long getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    public void setKeepAliveDuration(long keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+    }
+
+    public boolean getWarmupEnable() {
+        return warmupEnable;
+    }
+
+    public void setWarmupEnable(boolean warmupEnable) {
+        this.warmupEnable = warmupEnable;
+    }
+
+    public int getWarmupConnections() {
+        return warmupConnections;
+    }
+
+    public void setWarmupConnections(int warmupConnections) {
+        this.warmupConnections = warmupConnections;
+    }
+
+    public long getWarmupTimeout() {
+        return warmupTimeout;
+    }
+
+    public void setWarmupTimeout(long warmupTimeout) {
+        this.warmupTimeout = warmupTimeout;
+    }
+
+    public boolean getLazyInit() {
+        return lazyInit;
+    }
+
+    public void setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+    }
+
+    public boolean getTraceEnable() {
+        return traceEnable;
+    }
+
+    public void setTraceEnable(boolean traceEnable) {
+        this.traceEnable = traceEnable;
+    }
+
+    public long getSlowRequestThreshold() {
+        return slowRequestThreshold;
+    }
+
+    public void setSlowRequestThreshold(long slowRequestThreshold) {
+        this.slowRequestThreshold = slowRequestThreshold;
+    }
+
+    public int getCopyConcurrency() {
+        return copyConcurrency;
+    }
+
+    public void setCopyConcurrency(int copyConcurrency) {
+        this.copyConcurrency = copyConcurrency;
+    }
+
+    public int getUploadThreads() {
+        return uploadThreads;
+    }
+
+    public void setUploadThreads(int uploadThreads) {
+        this.uploadThreads = uploadThreads;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public Buffer getBuffer() {
+        return buffer;
+    }
+
+    public Spool getSpool() {
+        return spool;
+    }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public Coalesce getCoalesce() {
+        return coalesce;
+    }
+
+    public Sweeper getSweeper() {
+        return sweeper;
+    }
+
+    public Map<String, Cluster> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * 生成指定集群的配置，集群未配置的项沿用当前配置
+     *
+     * @param name 集群名称
+     * @return 集群配置
+     */
+    public MinioProperties forCluster(String name) {
+        Cluster cluster = clusters.get(name);
+        if (cluster == null) {
+            throw new IllegalArgumentException("minio cluster not configured: " + name);
+        }
+        MinioProperties properties = new MinioProperties();
+        properties.setAccessKey(cluster.getAccessKey() != null ? cluster.getAccessKey() : accessKey);
+        properties.setSecretKey(cluster.getSecretKey() != null ? cluster.getSecretKey() : secretKey);
+        properties.setBucketName(cluster.getBucketName() != null ? cluster.getBucketName() : bucketName);
+        properties.setHost(cluster.getHost() != null ? cluster.getHost() : host);
+        properties.setPrefixLink(cluster.getPrefixLink() != null ? cluster.getPrefixLink() : prefixLink);
+        properties.setMaxIdleConnections(cluster.getMaxIdleConnections() != null
+                ? cluster.getMaxIdleConnections() : maxIdleConnections);
+        properties.setKeepAliveDuration(cluster.getKeepAliveDuration() != null
+                ? cluster.getKeepAliveDuration() : keepAliveDuration);
+        properties.setMaxRequests(cluster.getMaxRequests() != null ? cluster.getMaxRequests() : maxRequests);
+        properties.setPartSize(partSize);
+        properties.setAsyncEnable(asyncEnable);
+        properties.setWarmupEnable(warmupEnable);
+        properties.setWarmupConnections(warmupConnections);
+        properties.setWarmupTimeout(warmupTimeout);
+        properties.setLazyInit(lazyInit);
+        properties.setTraceEnable(traceEnable);
+        properties.setSlowRequestThreshold(slowRequestThreshold);
+        properties.setCopyConcurrency(copyConcurrency);
+        properties.setUploadThreads(uploadThreads);
+        properties.getBuffer().setMaxBytes(buffer.getMaxBytes());
+        properties.getBuffer().setAcquireTimeout(buffer.getAcquireTimeout());
+        properties.getDedup().setEnable(dedup.getEnable());
+        properties.getDedup().setPrefix(dedup.getPrefix());
+        properties.getDedup().setTempDirectory(dedup.getTempDirectory());
+        properties.getDedup().setCacheSize(dedup.getCacheSize());
+        properties.getDedup().setCacheTtl(dedup.getCacheTtl());
+        return properties;
+    }
+
+    /**
+     * 上传缓冲池配置，配置内存预算后所有上传共用缓冲池中的分片缓冲区
+     */
+    public static class Buffer {
+        /**
+         * 内存预算，单位：字节，缓冲区大小为分片大小
+         */
+        private long maxBytes;
+
+        /**
+         * 预算耗尽时获取缓冲区的等待时间，单位：毫秒，为0时立即失败
+         */
+        private long acquireTimeout = 30000;
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public long getAcquireTimeout() {
+            return acquireTimeout;
+        }
+
+        public void setAcquireTimeout(long acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+        }
+    }
+
+    /**
+     * 异步上传队列配置，配置落盘目录后uploadFile先写入本地目录后立即返回，后台上传到minio
+     */
+    public static class Spool {
+        /**
+         * 落盘目录
+         */
+        private String directory;
+
+        /**
+         * 写入后是否刷盘，关闭时机器掉电可能丢失最近的上传
+         */
+        private boolean fsync = true;
+
+        /**
+         * 上传线程数
+         */
+        private int workers = 4;
+
+        /**
+         * 上传失败的重试间隔，单位：毫秒，按指数退避
+         */
+        private long retryInterval = 1000;
+
+        /**
+         * 最大重试次数，超过后移入failed目录，小于等于0时一直重试
+         */
+        private int maxRetries = 20;
+
+        /**
+         * 落盘目录的容量，超过后uploadFile失败，单位：字节，小于等于0时不限制
+         */
+        private long maxBytes;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public boolean getFsync() {
+            return fsync;
+        }
+
+        public void setFsync(boolean fsync) {
+            this.fsync = fsync;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public long getRetryInterval() {
+            return retryInterval;
+        }
+
+        public void setRetryInterval(long retryInterval) {
+            this.retryInterval = retryInterval;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * 去重上传配置，开启后相同内容只经过网络一次，之后相同内容由服务端从首次上传的文件复制
+     */
+    public static class Dedup {
+        /**
+         * 是否开启去重上传
+         */
+        private boolean enable;
+
+        /**
+         * 索引对象名称前缀，索引对象名称为前缀加SHA-256摘要
+         */
+        private String prefix = ".dedup/";
+
+        /**
+         * 计算摘要时落盘的临时目录，默认为系统临时目录
+         */
+        private String tempDirectory;
+
+        /**
+         * 索引查询的缓存数量
+         */
+        private long cacheSize = 10000;
+
+        /**
+         * 索引查询的缓存时间，单位：毫秒
+         */
+        private long cacheTtl = 600000;
+
+        public boolean getEnable() {
+            return enable;
+        }
+
+        public void setEnable(boolean enable) {
+            this.enable = enable;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getTempDirectory() {
+            return tempDirectory;
+        }
+
+        public void setTempDirectory(String tempDirectory) {
+            this.tempDirectory = tempDirectory;
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public long getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(long cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+    }
+
+    /**
+     * 请求合并配置，开启后同一文件并发的信息查询与小文件读取只发起一个请求，各集群共用
+     */
+    public static class Coalesce {
+        /**
+         * 是否开启请求合并
+         */
+        private boolean enable;
+
+        /**
+         * 读取时可共享的最大文件大小，单位：字节，超过时各自发起请求
+         */
+        private long maxObjectSize = 1024 * 1024;
+
+        /**
+         * 共享缓冲区内存预算，单位：字节，耗尽时各自发起请求
+         */
+        private long maxBytes = 64 * 1024 * 1024;
+
+        /**
+         * 异步读取时读取完整内容的线程数
+         */
+        private int threads = 4;
+
+        public boolean getEnable() {
+            return enable;
+        }
+
+        public void setEnable(boolean enable) {
+            this.enable = enable;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public long getMaxObjectSize() {
+            return maxObjectSize;
+        }
+
+        public void setMaxObjectSize(long maxObjectSize) {
+            this.maxObjectSize = maxObjectSize;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+
+    /**
+     * 清理配置，开启后定时取消未完成的分片上传并删除过期的分片文件，多个实例通过桶中的锁文件协调，只清理默认集群
+     */
+    public static class Sweeper {
+        /**
+         * 是否开启清理
+         */
+        private boolean enable;
+
+        /**
+         * 清理的桶，为空时清理bucketName
+         */
+        private List<String> buckets = new ArrayList<>();
+
+        /**
+         * 分片文件前缀，前缀下修改时间超过期限的文件会被删除，为空时只清理分片上传
+         */
+        private List<String> chunkPrefixes = new ArrayList<>();
+
+        /**
+         * 清理期限，发起或修改时间超过该时长才清理，需大于最长的上传耗时，单位：毫秒，默认1天
+         */
+        private long maxAge = 24 * 60 * 60 * 1000L;
+
+        /**
+         * 首次清理的延迟，单位：毫秒
+         */
+        private long initialDelay = 60 * 1000L;
+
+        /**
+         * 清理间隔，单位：毫秒，默认1小时
+         */
+        private long interval = 60 * 60 * 1000L;
+
+        /**
+         * 并行的取消与删除请求数
+         */
+        private int concurrency = 4;
+
+        /**
+         * 取消与删除请求的速率上限，每秒请求数，需大于0
+         */
+        private double rateLimit = 20;
+
+        /**
+         * 每次批量删除的文件数，最多1000
+         */
+        private int batchSize = 1000;
+
+        /**
+         * 锁文件名称
+         */
+        private String lockObject = ".minio-sweeper.lock";
+
+        /**
+         * 锁租期，超过租期未续期时可被其他实例接管，单位：毫秒
+         */
+        private long lockTtl = 10 * 60 * 1000L;
+
+        /**
+         * 服务端不支持条件写入时是否仍然清理，开启后多个实例可能同时清理同一个桶，默认不清理
+         */
+        private boolean allowUnconditionalLock;
+
+        public boolean getEnable() {
+            return enable;
+        }
+
+        public void setEnable(boolean enable) {
+            this.enable = enable;
+        }
+
+        public List<String> getBuckets() {
+            return buckets;
+        }
+
+        public void setBuckets(List<String> buckets) {
+            this.buckets = buckets;
+        }
+
+        public List<String> getChunkPrefixes() {
+            return chunkPrefixes;
+        }
+
+        public void setChunkPrefixes(List<String> chunkPrefixes) {
+            this.chunkPrefixes = chunkPrefixes;
+        }
+
+        public long getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(long maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public long getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(long initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public double getRateLimit() {
+            return rateLimit;
+        }
+
+        public void setRateLimit(double rateLimit) {
+            this.rateLimit = rateLimit;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public String getLockObject() {
+            return lockObject;
+        }
+
+        public void setLockObject(String lockObject) {
+            this.lockObject = lockObject;
+        }
+
+        public long getLockTtl() {
+            return lockTtl;
+        }
+
+        public void setLockTtl(long lockTtl) {
+            this.lockTtl = lockTtl;
+        }
+
+        public boolean getAllowUnconditionalLock() {
+            return allowUnconditionalLock;
+        }
+
+        public void setAllowUnconditionalLock(boolean allowUnconditionalLock) {
+            this.allowUnconditionalLock = allowUnconditionalLock;
+        }
+    }
+
+    /**
+     * 集群配置，分片大小与缓冲池与全局一致，不使用异步上传队列
+     */
+    public static class Cluster {
+        /**
+         * 连接地址
+         */
+        private String host;
+        /**
+         * 用户名
+         */
+        private String accessKey;
+        /**
+         * 密码
+         */
+        private String secretKey;
+        /**
+         * 【默认】桶名称
+         */
+        private String bucketName;
+        /**
+         * 文件链接前缀
+         */
+        private String prefixLink;
+        /**
+         * 连接池最大空闲连接数
+         */
+        private Integer maxIdleConnections;
+        /**
+         * 连接池空闲连接保活时间，单位：毫秒
+         */
+        private Long keepAliveDuration;
+        /**
+         * 最大并发请求数
+         */
+        private Integer maxRequests;
+        /**
+         * 路由到该集群的桶名称
+         */
+        private List<String> buckets = new ArrayList<>();
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public String getAccessKey() {
+            return accessKey;
+        }
+
+        public void setAccessKey(String accessKey) {
+            this.accessKey = accessKey;
+        }
+
+        public String getSecretKey() {
+            return secretKey;
+        }
+
+        public void setSecretKey(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        public String getBucketName() {
+            return bucketName;
+        }
+
+        public void setBucketName(String bucketName) {
+            this.bucketName = bucketName;
+        }
+
+        public String getPrefixLink() {
+            return prefixLink;
+        }
+
+        public void setPrefixLink(String prefixLink) {
+            this.prefixLink = prefixLink;
+        }
+
+        public Integer getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public void setMaxIdleConnections(Integer maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+
+        public Long getKeepAliveDuration() {
+            return keepAliveDuration;
+        }
+
+        public void setKeepAliveDuration(Long keepAliveDuration) {
+            this.keepAliveDuration = keepAliveDuration;
+        }
+
+        public Integer getMaxRequests() {
+            return maxRequests;
+        }
+
+        public void setMaxRequests(Integer maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        public List<String> getBuckets() {
+            return buckets;
+        }
+
+        public void setBuckets(List<String> buckets) {
+            this.buckets = buckets;
+        }
+    }
 }
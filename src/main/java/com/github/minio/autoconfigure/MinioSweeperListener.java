@@ -0,0 +1,28 @@
+package com.github.minio.autoconfigure;
+
+import com.github.minio.core.UploadSweeper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * 应用启动完成后开始定时清理，启动失败时不会留下清理线程
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioSweeperListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final UploadSweeper uploadSweeper;
+
+    private final MinioProperties.Sweeper sweeper;
+
+    public MinioSweeperListener(UploadSweeper uploadSweeper, MinioProperties.Sweeper sweeper) {
+        this.uploadSweeper = uploadSweeper;
+        this.sweeper = sweeper;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        uploadSweeper.start(sweeper.getInitialDelay(), sweeper.getInterval());
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.minio.autoconfigure;
+
+import com.github.minio.core.MinioAsyncTemplate;
+import com.github.minio.core.MinioTemplate;
+import com.github.minio.core.RoutingMinioAsyncTemplate;
+import com.github.minio.core.RoutingMinioTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 连接预热与应用就绪状态关联
+ * <p>
+ * 模板在创建时于后台预热，不阻塞其他bean的创建；应用启动完成时等待所有模板预热结束，
+ * Spring Boot在此之后才发布ACCEPTING_TRAFFIC，因此预热期间就绪探针返回未就绪，预热失败时应用启动失败
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioWarmUpListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final ObjectProvider<MinioTemplate> minioTemplate;
+
+    private final ObjectProvider<MinioAsyncTemplate> minioAsyncTemplate;
+
+    private final ObjectProvider<RoutingMinioTemplate> routingMinioTemplate;
+
+    private final ObjectProvider<RoutingMinioAsyncTemplate> routingMinioAsyncTemplate;
+
+    public MinioWarmUpListener(ObjectProvider<MinioTemplate> minioTemplate,
+                               ObjectProvider<MinioAsyncTemplate> minioAsyncTemplate,
+                               ObjectProvider<RoutingMinioTemplate> routingMinioTemplate,
+                               ObjectProvider<RoutingMinioAsyncTemplate> routingMinioAsyncTemplate) {
+        this.minioTemplate = minioTemplate;
+        this.minioAsyncTemplate = minioAsyncTemplate;
+        this.routingMinioTemplate = routingMinioTemplate;
+        this.routingMinioAsyncTemplate = routingMinioAsyncTemplate;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        minioTemplate.orderedStream().forEach(template -> futures.add(template.getWarmUpFuture()));
+        minioAsyncTemplate.orderedStream().forEach(template -> futures.add(template.getWarmUpFuture()));
+        routingMinioTemplate.ifAvailable(routing -> routing.getClusters().values()
+                .forEach(template -> futures.add(template.getWarmUpFuture())));
+        routingMinioAsyncTemplate.ifAvailable(routing -> routing.getClusters().values()
+                .forEach(template -> futures.add(template.getWarmUpFuture())));
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("minio warm up interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("minio warm up failed", e.getCause());
+        }
+    }
+}
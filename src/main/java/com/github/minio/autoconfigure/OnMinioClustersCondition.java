@@ -0,0 +1,30 @@
+package com.github.minio.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 配置了spring.minio.clusters时生效
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+class OnMinioClustersCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, MinioProperties.Cluster> clusters = Binder.get(context.getEnvironment())
+                .bind("spring.minio.clusters", Bindable.mapOf(String.class, MinioProperties.Cluster.class))
+                .orElseGet(Collections::emptyMap);
+        return clusters.isEmpty()
+                ? ConditionOutcome.noMatch("spring.minio.clusters not configured")
+                : ConditionOutcome.match("spring.minio.clusters configured: " + clusters.keySet());
+    }
+}
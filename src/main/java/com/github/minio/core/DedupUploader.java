@@ -0,0 +1,281 @@
+package com.github.minio.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.Directive;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.errors.ErrorResponseException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容寻址去重上传，上传时计算文件内容的SHA-256，相同内容只上传一次
+ * <p>
+ * 某个内容第一次上传时直接上传到原文件名，同时在前缀加摘要处写入一个很小的索引对象，记录该文件的名称与ETag；
+ * 再次上传相同内容时由服务端从该文件复制出完整的文件，数据只经过网络一次，每个内容只保存一份，不额外保存内容副本。
+ * 所有文件与普通上传的文件完全相同，读取、复制、列举都不需要感知去重。
+ * 复制时要求源文件的ETag与索引一致，源文件已删除或被覆盖时重新上传并更新索引；索引对象可以用生命周期规则按前缀过期删除，
+ * 删除后再次上传相同内容时重新上传。索引的查询结果会被缓存，同时上传相同内容时只有一个上传传输数据，其余等待后只做服务端复制
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class DedupUploader {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String prefix;
+
+    /**
+     * 落盘计算摘要的临时目录
+     */
+    private final Path tempDirectory;
+
+    /**
+     * 已确认的索引，索引对象名称与内容所在的文件
+     */
+    private final Cache<String, Source> existing;
+
+    /**
+     * 正在上传的内容
+     */
+    private final ConcurrentMap<String, CompletableFuture<Source>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param prefix        索引对象名称前缀
+     * @param tempDirectory 落盘计算摘要的临时目录
+     * @param cacheSize     索引查询的缓存数量
+     * @param cacheTtl      索引查询的缓存时间，单位：毫秒
+     */
+    public DedupUploader(String prefix, Path tempDirectory, long cacheSize, long cacheTtl) {
+        this.prefix = prefix;
+        this.tempDirectory = tempDirectory;
+        this.existing = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 去重上传
+     *
+     * @param client      客户端，用于读写索引与服务端复制
+     * @param uploader    内容不存在时上传文件的方法
+     * @param bucketName  桶名称
+     * @param objectName  文件名称
+     * @param stream      文件流
+     * @param size        文件大小，未知时为null或-1
+     * @param contentType MIME类型
+     * @return 上传或复制的结果
+     * @throws Exception 异常
+     */
+    ObjectWriteResponse upload(ExtendedMinioAsyncClient client, SpoolUploadQueue.Uploader uploader,
+                               String bucketName, String objectName, InputStream stream, Long size,
+                               String contentType) throws Exception {
+        Path temp = Files.createTempFile(tempDirectory, "minio-dedup-", ".tmp");
+        try {
+            //落盘的同时计算摘要
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long length = 0;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = stream.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    length += n;
+                }
+            }
+            if (size != null && size >= 0 && length != size) {
+                throw new IOException("stream length " + length + " does not match size " + size);
+            }
+            String indexName = prefix + hex(digest.digest());
+            String key = bucketName + "/" + indexName;
+            while (true) {
+                CompletableFuture<Source> upload = new CompletableFuture<>();
+                CompletableFuture<Source> other = inFlight.putIfAbsent(key, upload);
+                if (other != null) {
+                    //相同内容正在上传，等待其完成后复制，失败时重新竞争
+                    Source source;
+                    try {
+                        source = MinioFutures.await(other);
+                    } catch (Exception e) {
+                        continue;
+                    }
+                    ObjectWriteResponse response = copy(client, bucketName, source, objectName, contentType);
+                    if (response != null) {
+                        return response;
+                    }
+                    continue;
+                }
+                try {
+                    Source source = existing.getIfPresent(key);
+                    if (source == null) {
+                        source = readIndex(client, bucketName, indexName);
+                    }
+                    if (source != null) {
+                        ObjectWriteResponse response = copy(client, bucketName, source, objectName, contentType);
+                        if (response != null) {
+                            existing.put(key, source);
+                            upload.complete(source);
+                            return response;
+                        }
+                        //源文件已删除或被覆盖，重新上传
+                        existing.invalidate(key);
+                    }
+                    ObjectWriteResponse response;
+                    try (InputStream in = new BufferedInputStream(Files.newInputStream(temp), 64 * 1024)) {
+                        response = uploader.upload(bucketName, objectName, in, length, contentType);
+                    }
+                    source = new Source(objectName, unquote(response.etag()));
+                    writeIndex(client, bucketName, indexName, source);
+                    existing.put(key, source);
+                    upload.complete(source);
+                    return response;
+                } catch (Exception e) {
+                    upload.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, upload);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 服务端从内容所在的文件复制出新文件，元数据使用本次上传的MIME类型
+     *
+     * @return 复制结果，源文件就是目标文件、已删除或ETag不一致时为null
+     */
+    private static ObjectWriteResponse copy(ExtendedMinioAsyncClient client, String bucketName, Source source,
+                                            String objectName, String contentType) throws Exception {
+        if (source.objectName.equals(objectName)) {
+            //覆盖内容所在的文件时直接上传，服务端复制到自身会改变ETag导致索引失效
+            return null;
+        }
+        Map<String, String> headers = new HashMap<>();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        try {
+            return MinioFutures.await(client.copyObject(CopyObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .source(CopySource.builder()
+                            .bucket(bucketName)
+                            .object(source.objectName)
+                            .matchETag(source.etag)
+                            .build())
+                    .headers(headers)
+                    .metadataDirective(Directive.REPLACE)
+                    .build()));
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if ("NoSuchKey".equals(code) || "PreconditionFailed".equals(code)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读取索引，索引内容为ETag与文件名称，以换行分隔
+     *
+     * @return 内容所在的文件，索引不存在时为null
+     */
+    private static Source readIndex(ExtendedMinioAsyncClient client, String bucketName,
+                                    String indexName) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GetObjectResponse in = MinioFutures.await(client.getObject(GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(indexName)
+                .build()))) {
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (ErrorResponseException e) {
+            if (e.response().code() == 404) {
+                return null;
+            }
+            throw e;
+        }
+        String index = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        int separator = index.indexOf('\n');
+        if (separator <= 0 || separator == index.length() - 1) {
+            return null;
+        }
+        return new Source(index.substring(separator + 1), index.substring(0, separator));
+    }
+
+    private static void writeIndex(ExtendedMinioAsyncClient client, String bucketName, String indexName,
+                                   Source source) throws Exception {
+        byte[] index = (source.etag + "\n" + source.objectName).getBytes(StandardCharsets.UTF_8);
+        MinioFutures.await(client.putObject(PutObjectArgs.builder()
+                .bucket(bucketName)
+                .object(indexName)
+                .stream(new ByteArrayInputStream(index), index.length, -1)
+                .contentType("text/plain")
+                .build()));
+    }
+
+    private static String unquote(String etag) {
+        return etag != null && etag.length() > 1 && etag.startsWith("\"") && etag.endsWith("\"")
+                ? etag.substring(1, etag.length() - 1) : etag;
+    }
+
+    /**
+     * 是否为索引对象
+     *
+     * @param objectName 文件名称
+     * @return boolean
+     */
+    boolean isContent(String objectName) {
+        return objectName.startsWith(prefix);
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 内容所在的文件
+     */
+    private static final class Source {
+        private final String objectName;
+        private final String etag;
+
+        private Source(String objectName, String etag) {
+            this.objectName = objectName;
+            this.etag = etag;
+        }
+    }
+}
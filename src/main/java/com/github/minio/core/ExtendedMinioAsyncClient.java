@@ -0,0 +1,199 @@
+package com.github.minio.core;
+
+import com.google.common.collect.Multimap;
+import io.minio.AbortMultipartUploadResponse;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.GetObjectArgs;
+import io.minio.ListMultipartUploadsResponse;
+import io.minio.ListPartsResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.SelectObjectContentArgs;
+import io.minio.SelectResponseStream;
+import io.minio.UploadPartCopyResponse;
+import io.minio.UploadPartResponse;
+import io.minio.messages.Part;
+import io.minio.messages.SelectObjectContentRequest;
+import okhttp3.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 扩展的minio异步客户端，公开分片上传等底层接口，并提供非阻塞的S3 Select
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class ExtendedMinioAsyncClient extends MinioAsyncClient {
+
+    public ExtendedMinioAsyncClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * 创建分片上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param headers    请求头
+     * @return 分片上传信息
+     * @throws Exception 异常
+     */
+    public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(
+            String bucketName, String objectName, Multimap<String, String> headers) throws Exception {
+        return createMultipartUploadAsync(bucketName, null, objectName, headers, null);
+    }
+
+    /**
+     * 上传单个文件，数据直接来自内存缓冲区
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param data       缓冲区
+     * @param length     有效数据长度
+     * @param headers    请求头
+     * @return obj
+     * @throws Exception 异常
+     */
+    public CompletableFuture<ObjectWriteResponse> putObject(
+            String bucketName, String objectName, byte[] data, int length,
+            Multimap<String, String> headers) throws Exception {
+        return putObjectAsync(bucketName, null, objectName, data, length, headers, null);
+    }
+
+    /**
+     * 上传分片，数据直接来自内存缓冲区，返回时缓冲区已可复用
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param uploadId   分片上传id
+     * @param partNumber 分片序号
+     * @param data       缓冲区
+     * @param length     有效数据长度
+     * @return 分片信息
+     * @throws Exception 异常
+     */
+    public CompletableFuture<UploadPartResponse> uploadPart(
+            String bucketName, String objectName, String uploadId, int partNumber,
+            byte[] data, int length) throws Exception {
+        return uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber, null, null);
+    }
+
+    /**
+     * 服务端复制分片
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param uploadId   分片上传id
+     * @param partNumber 分片序号
+     * @param headers    请求头，包含复制源及范围
+     * @return 分片信息
+     * @throws Exception 异常
+     */
+    public CompletableFuture<UploadPartCopyResponse> uploadPartCopy(
+            String bucketName, String objectName, String uploadId, int partNumber,
+            Multimap<String, String> headers) throws Exception {
+        return uploadPartCopyAsync(bucketName, null, objectName, uploadId, partNumber, headers, null);
+    }
+
+    /**
+     * 完成分片上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param uploadId   分片上传id
+     * @param parts      分片集合，按序号排列
+     * @return obj
+     * @throws Exception 异常
+     */
+    public CompletableFuture<ObjectWriteResponse> completeMultipartUpload(
+            String bucketName, String objectName, String uploadId, Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null);
+    }
+
+    /**
+     * 取消分片上传
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param uploadId   分片上传id
+     * @return obj
+     * @throws Exception 异常
+     */
+    public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(
+            String bucketName, String objectName, String uploadId) throws Exception {
+        return abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null);
+    }
+
+    /**
+     * 分页查询未完成的分片上传，按文件名称与上传id排序
+     *
+     * @param bucketName     桶名称
+     * @param keyMarker      从该文件名称之后开始，为null时从头开始
+     * @param uploadIdMarker 与keyMarker配合，从该上传id之后开始
+     * @param maxUploads     每页最大数量，最多1000
+     * @return 分片上传列表
+     * @throws Exception 异常
+     */
+    public CompletableFuture<ListMultipartUploadsResponse> listMultipartUploads(
+            String bucketName, String keyMarker, String uploadIdMarker, int maxUploads) throws Exception {
+        return listMultipartUploadsAsync(bucketName, null, null, null, keyMarker, maxUploads, null,
+                uploadIdMarker, null, null);
+    }
+
+    /**
+     * 分页查询分片上传中已上传的分片
+     *
+     * @param bucketName       桶名称
+     * @param objectName       文件名称
+     * @param uploadId         分片上传id
+     * @param partNumberMarker 从该分片序号之后开始，为null时从头开始
+     * @return 分片列表
+     * @throws Exception 异常
+     */
+    public CompletableFuture<ListPartsResponse> listParts(
+            String bucketName, String objectName, String uploadId, Integer partNumberMarker) throws Exception {
+        return listPartsAsync(bucketName, null, objectName, null, partNumberMarker, uploadId, null, null);
+    }
+
+    /**
+     * 异步执行S3 Select查询，响应头返回后即完成，记录在读取流时增量解码
+     *
+     * @param args 查询参数
+     * @return 查询结果流
+     * @throws Exception 异常
+     */
+    public CompletableFuture<SelectResponseStream> selectObjectContentAsync(SelectObjectContentArgs args)
+            throws Exception {
+        checkArgs(args);
+        return executePostAsync(
+                args,
+                args.ssec() != null ? newMultimap(args.ssec().headers()) : null,
+                newMultimap("select", "", "select-type", "2"),
+                new SelectObjectContentRequest(
+                        args.sqlExpression(),
+                        Boolean.TRUE.equals(args.requestProgress()),
+                        args.inputSerialization(),
+                        args.outputSerialization(),
+                        args.scanStartRange(),
+                        args.scanEndRange()))
+                .thenApply(response -> new SelectResponseStream(response.body().byteStream()));
+    }
+
+    /**
+     * 读取文件，返回原始http响应，调用方负责关闭
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param headers    请求头，如Range、If-None-Match
+     * @return http响应
+     * @throws Exception 异常
+     */
+    public CompletableFuture<Response> getObjectResponse(String bucketName, String objectName,
+                                                         Multimap<String, String> headers) throws Exception {
+        return executeGetAsync(GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .build(), headers, null);
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.minio.core;
 
 import com.github.minio.autoconfigure.MinioProperties;
+import com.google.common.base.Suppliers;
 import io.minio.BucketExistsArgs;
 import io.minio.ComposeObjectArgs;
 import io.minio.ComposeSource;
@@ -14,15 +15,25 @@ import io.minio.PutObjectArgs;
 import io.minio.RemoveBucketArgs;
 import io.minio.RemoveObjectArgs;
 import io.minio.Result;
+import io.minio.SelectObjectContentArgs;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Bucket;
+import io.minio.messages.InputSerialization;
 import io.minio.messages.Item;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -32,18 +43,179 @@ import java.util.stream.Collectors;
  * @create 2023/6/23
  */
 public class MinioAsyncTemplate implements MinioAsyncOperations {
-    private MinioAsyncClient minioClient;
+    private Supplier<MinioAsyncClient> minioClient;
 
     private MinioProperties properties;
 
+    private final Supplier<ExtendedMinioAsyncClient> extendedClient = Suppliers.memoize(
+            () -> new ExtendedMinioAsyncClient(getMinioClient()));
+
+    private final Supplier<ObjectCopier> objectCopier = Suppliers.memoize(
+            () -> new ObjectCopier(extendedClient.get(), properties.getCopyConcurrency()));
+
+    /**
+     * 读取上传流的线程池，读取流与等待缓冲区都是阻塞的，不能占用公共线程池
+     */
+    private final Supplier<ExecutorService> uploadExecutor = Suppliers.memoize(
+            () -> newUploadExecutor(properties.getUploadThreads()));
+
+    private PooledPartUploader partUploader;
+
+    private SpoolUploadQueue spoolUploadQueue;
+
+    private DedupUploader dedupUploader;
+
+    private RequestCoalescer requestCoalescer;
+
+    /**
+     * 请求合并标识的前缀，多个集群共用请求合并时区分集群
+     */
+    private String coalesceNamespace = "";
+
+    /**
+     * 是否就绪，开启预热时在预热完成后才就绪
+     */
+    private volatile boolean ready = true;
+
+    private volatile CompletableFuture<Void> warmUpFuture = CompletableFuture.completedFuture(null);
+
     public void setMinioClient(MinioAsyncClient minioClient) {
-        this.minioClient = minioClient;
+        this.minioClient = () -> minioClient;
+    }
+
+    /**
+     * 设置客户端提供者，客户端在首次使用时才创建
+     *
+     * @param supplier 客户端提供者
+     */
+    public void setMinioClientSupplier(Supplier<MinioAsyncClient> supplier) {
+        this.minioClient = Suppliers.memoize(supplier::get);
+    }
+
+    public MinioAsyncClient getMinioClient() {
+        return minioClient.get();
+    }
+
+    /**
+     * 设置分片缓冲池，设置后分片上传使用缓冲池中的缓冲区
+     *
+     * @param partBufferPool 分片缓冲池
+     */
+    public void setPartBufferPool(PartBufferPool partBufferPool) {
+        this.partUploader = new PooledPartUploader(partBufferPool);
+    }
+
+    /**
+     * 设置异步上传队列，设置后uploadFile写入本地目录后立即返回，由队列后台上传，uploadFileWithPart仍直接上传
+     *
+     * @param spoolUploadQueue 异步上传队列，未启动时使用当前模板启动
+     * @throws IOException 落盘目录不可用
+     */
+    public void setSpoolUploadQueue(SpoolUploadQueue spoolUploadQueue) throws IOException {
+        spoolUploadQueue.start((bucketName, objectName, stream, size, contentType) ->
+                MinioFutures.await(uploadFileWithPart(bucketName, objectName, stream, size, contentType)));
+        this.spoolUploadQueue = spoolUploadQueue;
+    }
+
+    /**
+     * 设置去重上传，设置后相同内容只上传一次，原文件名处由服务端复制出完整文件
+     *
+     * @param dedupUploader 去重上传
+     */
+    public void setDedupUploader(DedupUploader dedupUploader) {
+        this.dedupUploader = dedupUploader;
+    }
+
+    /**
+     * 设置请求合并，设置后同一文件并发的信息查询与小文件读取只发起一个请求
+     *
+     * @param requestCoalescer 请求合并
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        setRequestCoalescer(requestCoalescer, null);
+    }
+
+    /**
+     * 设置请求合并，多个集群共用同一个请求合并时按集群名称区分同名桶中的文件
+     *
+     * @param requestCoalescer 请求合并
+     * @param cluster          集群名称，默认集群为null
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer, String cluster) {
+        this.requestCoalescer = requestCoalescer;
+        this.coalesceNamespace = cluster == null ? "" : cluster + ":";
     }
 
     public void setProperties(MinioProperties properties) {
         this.properties = properties;
     }
 
+    /**
+     * 是否就绪
+     *
+     * @return boolean
+     */
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 连接预热，并行发起请求以预先建立连接，同时检查默认桶，阻塞到预热完成
+     *
+     * @param connections   预先建立的连接数，小于等于0时不预热
+     * @param timeoutMillis 超时时间，单位：毫秒
+     * @throws Exception 预热失败或默认桶不存在
+     */
+    public void warmUp(int connections, long timeoutMillis) throws Exception {
+        MinioFutures.await(warmUpAsync(connections, timeoutMillis));
+    }
+
+    /**
+     * 非阻塞连接预热，调用后立即变为未就绪，预热成功后才就绪，失败时保持未就绪
+     *
+     * @param connections   预先建立的连接数，小于等于0时不预热
+     * @param timeoutMillis 超时时间，单位：毫秒
+     * @return 预热结果
+     */
+    public CompletableFuture<Void> warmUpAsync(int connections, long timeoutMillis) {
+        if (connections <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ready = false;
+        String bucketName = properties.getBucketName();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            futures.add(MinioFutures.call(() -> bucketName == null || bucketName.isEmpty()
+                    ? listBuckets().thenApply(buckets -> true) : bucketExists(bucketName)));
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else if (futures.stream().allMatch(CompletableFuture::join)) {
+                ready = true;
+                future.complete(null);
+            } else {
+                future.completeExceptionally(
+                        new IllegalStateException("minio default bucket not exists: " + bucketName));
+            }
+        });
+        //超时后保持未就绪
+        MinioFutures.timeout(future, timeoutMillis);
+        warmUpFuture = future;
+        return future;
+    }
+
+    /**
+     * 最近一次预热的结果，未预热时为已完成
+     *
+     * @return 预热结果
+     */
+    public CompletableFuture<Void> getWarmUpFuture() {
+        return warmUpFuture;
+    }
+
     /**
      * 创建桶
      *
@@ -52,7 +224,7 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<Void> createBucket(String bucketName) throws Exception {
-        return minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+        return getMinioClient().makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
     }
 
     /**
@@ -63,7 +235,7 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<List<Bucket>> listBuckets() throws Exception {
-        return minioClient.listBuckets();
+        return getMinioClient().listBuckets();
     }
 
     /**
@@ -75,7 +247,7 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<Boolean> bucketExists(String bucketName) throws Exception {
-        return minioClient.bucketExists(BucketExistsArgs.builder()
+        return getMinioClient().bucketExists(BucketExistsArgs.builder()
                 .bucket(bucketName)
                 .build());
     }
@@ -88,7 +260,7 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<Void> deleteBucket(String bucketName) throws Exception {
-        return minioClient.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+        return getMinioClient().removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
     }
 
     /**
@@ -104,6 +276,13 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
     @Override
     public CompletableFuture<ObjectWriteResponse> uploadFile(String bucketName, String objectName, InputStream ins,
                                                              Long size, String contentType) throws Exception {
+        if (spoolUploadQueue != null) {
+            //写入本地目录后返回，future在后台上传完成时结束
+            CompletableFuture<ObjectWriteResponse> future =
+                    spoolUploadQueue.enqueue(bucketName, objectName, ins, size, contentType);
+            ins.close();
+            return future;
+        }
         return uploadFileWithPart(bucketName, objectName, ins, size, contentType);
     }
 
@@ -118,7 +297,7 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<ObjectWriteResponse> uploadFile(String objectName, InputStream ins, Long size, String contentType) throws Exception {
-        return uploadFileWithPart(properties.getBucketName(), objectName, ins, size, contentType);
+        return uploadFile(properties.getBucketName(), objectName, ins, size, contentType);
     }
 
     /**
@@ -135,13 +314,43 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
     public CompletableFuture<ObjectWriteResponse> uploadFileWithPart(String bucketName, String objectName,
                                                                      InputStream stream, Long size, String contentType)
             throws Exception {
+        if (dedupUploader != null) {
+            ExtendedMinioAsyncClient client = extendedClient.get();
+            SpoolUploadQueue.Uploader uploader = (bucket, object, content, length, type) ->
+                    MinioFutures.await(putContent(bucket, object, content, length, type));
+            //计算摘要需要读取完整的流，在上传线程池中进行
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dedupUploader.upload(client, uploader, bucketName, objectName, stream, size, contentType);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, uploadExecutor.get());
+        }
+        return putContent(bucketName, objectName, stream, size, contentType);
+    }
+
+    private CompletableFuture<ObjectWriteResponse> putContent(String bucketName, String objectName,
+                                                              InputStream stream, Long size, String contentType)
+            throws Exception {
+        if (partUploader != null && partUploader.supports(size)) {
+            ExtendedMinioAsyncClient client = extendedClient.get();
+            //读取流与等待缓冲区在上传线程池中进行
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return partUploader.upload(client, bucketName, objectName, stream, size, contentType);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, uploadExecutor.get());
+        }
         PutObjectArgs args = PutObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
                 .stream(stream, size, properties.getPartSize())
                 .contentType(contentType)
                 .build();
-        return minioClient.putObject(args);
+        return getMinioClient().putObject(args);
     }
 
     /**
@@ -154,10 +363,14 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<StatObjectResponse> getFileInfo(String bucketName, String objectName) throws Exception {
-        return minioClient.statObject(StatObjectArgs.builder()
+        StatObjectArgs args = StatObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .build());
+                .build();
+        return requestCoalescer == null
+                ? getMinioClient().statObject(args)
+                : requestCoalescer.statAsync(coalesceNamespace + bucketName + "/" + objectName,
+                () -> getMinioClient().statObject(args));
     }
 
     /**
@@ -172,13 +385,18 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
     @Override
     public List<Item> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) throws Exception {
         List<Item> objectList = new ArrayList<>();
-        final Iterable<Result<Item>> objectsIterator = minioClient.listObjects(ListObjectsArgs.builder()
+        Iterable<Result<Item>> objectsIterator = getMinioClient().listObjects(ListObjectsArgs.builder()
                 .bucket(bucketName)
                 .prefix(prefix)
                 .recursive(recursive)
                 .build());
-        while (objectsIterator.iterator().hasNext()) {
-            objectList.add(objectsIterator.iterator().next().get());
+        //每次调用iterator()都会从头列举，只能遍历同一个迭代器
+        for (Result<Item> result : objectsIterator) {
+            Item item = result.get();
+            //去重上传的索引对象不属于用户文件
+            if (dedupUploader == null || !dedupUploader.isContent(item.objectName())) {
+                objectList.add(item);
+            }
         }
         return objectList;
     }
@@ -193,10 +411,14 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<GetObjectResponse> getObject(String bucketName, String objectName) throws Exception {
-        return minioClient.getObject(GetObjectArgs.builder()
+        GetObjectArgs args = GetObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .build());
+                .build();
+        return requestCoalescer == null
+                ? getMinioClient().getObject(args)
+                : requestCoalescer.getObjectAsync(coalesceNamespace + bucketName + "/" + objectName,
+                () -> getMinioClient().getObject(args));
     }
 
     /**
@@ -208,7 +430,7 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
      */
     @Override
     public CompletableFuture<Void> removeObject(String bucketName, String objectName) throws Exception {
-        return minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName)
+        return getMinioClient().removeObject(RemoveObjectArgs.builder().bucket(bucketName)
                 .object(objectName).build());
     }
 
@@ -228,11 +450,134 @@ public class MinioAsyncTemplate implements MinioAsyncOperations {
                 .bucket(bucketName)
                 .object(chunkName)
                 .build()).collect(Collectors.toCollection(() -> new ArrayList<>(chunkNames.size())));
-        return minioClient.composeObject(ComposeObjectArgs.builder()
+        return getMinioClient().composeObject(ComposeObjectArgs.builder()
                 .bucket(bucketName)
                 .sources(sources)
                 .object(targetObjectName)
                 .build());
 
     }
+
+    /**
+     * 服务端复制文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @return obj
+     * @throws Exception ex
+     */
+    @Override
+    public CompletableFuture<ObjectWriteResponse> copyObject(String sourceBucket, String sourceObject,
+                                                             String targetBucket, String targetObject)
+            throws Exception {
+        return objectCopier.get().copyObject(sourceBucket, sourceObject, targetBucket, targetObject);
+    }
+
+    /**
+     * 服务端移动文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @return obj
+     * @throws Exception ex
+     */
+    @Override
+    public CompletableFuture<Void> moveObject(String sourceBucket, String sourceObject, String targetBucket,
+                                              String targetObject) throws Exception {
+        return objectCopier.get().moveObject(sourceBucket, sourceObject, targetBucket, targetObject);
+    }
+
+    /**
+     * 按前缀服务端复制文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @return 复制的文件数
+     * @throws Exception ex
+     */
+    @Override
+    public CompletableFuture<Integer> copyPrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                                                 String targetPrefix) throws Exception {
+        return objectCopier.get().copyPrefix(sourceBucket, sourcePrefix, targetBucket, targetPrefix, false);
+    }
+
+    /**
+     * 按前缀服务端移动文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @return 移动的文件数
+     * @throws Exception ex
+     */
+    @Override
+    public CompletableFuture<Integer> movePrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                                                 String targetPrefix) throws Exception {
+        return objectCopier.get().copyPrefix(sourceBucket, sourcePrefix, targetBucket, targetPrefix, true);
+    }
+
+    /**
+     * S3 Select查询
+     *
+     * @param bucketName   桶名称
+     * @param objectName   文件名称
+     * @param sql          查询语句
+     * @param inputFormat  文件格式
+     * @param outputFormat 结果格式
+     * @return 查询结果
+     * @throws Exception ex
+     */
+    @Override
+    public CompletableFuture<SelectResult> selectObject(String bucketName, String objectName, String sql,
+                                                        SelectFormat inputFormat, SelectFormat outputFormat)
+            throws Exception {
+        return selectObject(bucketName, objectName, sql, inputFormat.toInputSerialization(), outputFormat);
+    }
+
+    /**
+     * S3 Select查询，使用自定义的输入格式
+     *
+     * @param bucketName   桶名称
+     * @param objectName   文件名称
+     * @param sql          查询语句
+     * @param input        文件格式
+     * @param outputFormat 结果格式
+     * @return 查询结果
+     * @throws Exception ex
+     */
+    @Override
+    public CompletableFuture<SelectResult> selectObject(String bucketName, String objectName, String sql,
+                                                        InputSerialization input, SelectFormat outputFormat)
+            throws Exception {
+        return extendedClient.get().selectObjectContentAsync(SelectObjectContentArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .sqlExpression(sql)
+                .inputSerialization(input)
+                .outputSerialization(outputFormat.toOutputSerialization())
+                .build()).thenApply(stream -> new SelectResult(stream, outputFormat));
+    }
+
+    /**
+     * 固定线程数的上传线程池，空闲时回收线程
+     */
+    private static ExecutorService newUploadExecutor(int threads) {
+        int size = Math.max(1, threads);
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "minio-upload-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
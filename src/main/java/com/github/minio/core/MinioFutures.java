@@ -0,0 +1,90 @@
+package com.github.minio.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步调用的内部工具，超时由共享的定时线程触发，不为每次等待单独创建线程
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+final class MinioFutures {
+
+    /**
+     * 共享的超时定时器，首次使用时才创建线程
+     */
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "minio-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        //future提前完成时取消的定时任务立即移出队列
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private MinioFutures() {
+    }
+
+    /**
+     * 调用可能抛出受检异常的异步方法，异常转为失败的future
+     */
+    static <T> CompletableFuture<T> call(Callable<CompletableFuture<T>> callable) {
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * 等待future完成，失败时抛出原始异常
+     */
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 超过时间未完成时以TimeoutException失败
+     *
+     * @param future        future
+     * @param timeoutMillis 超时时间，单位：毫秒
+     * @param <T>           结果类型
+     * @return 传入的future
+     */
+    static <T> CompletableFuture<T> timeout(CompletableFuture<T> future, long timeoutMillis) {
+        if (future.isDone()) {
+            return future;
+        }
+        ScheduledFuture<?> timer = SCHEDULER.schedule(() -> future.completeExceptionally(
+                new TimeoutException("minio request timed out after " + timeoutMillis + "ms")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, e) -> timer.cancel(false));
+        return future;
+    }
+}
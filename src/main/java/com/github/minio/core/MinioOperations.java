@@ -3,6 +3,7 @@ package com.github.minio.core;
 import io.minio.ObjectWriteResponse;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Bucket;
+import io.minio.messages.InputSerialization;
 import io.minio.messages.Item;
 
 import java.io.InputStream;
@@ -15,6 +16,15 @@ import java.util.List;
  * @create 2023/6/23
  */
 public interface MinioOperations {
+    /**
+     * 是否就绪，开启预热时在预热完成后才就绪，未实现预热的实现类始终就绪
+     *
+     * @return boolean
+     */
+    default boolean isReady() {
+        return true;
+    }
+
     /**
      * 创建桶
      *
@@ -136,5 +146,83 @@ public interface MinioOperations {
      */
     ObjectWriteResponse composeObject(String bucketName, List<String> chunkNames, String targetObjectName) throws Exception;
 
-}
+    /**
+     * 服务端复制文件，数据不经过客户端，超过5GB的文件分片并行复制
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @return obj
+     * @throws Exception 异常
+     */
+    ObjectWriteResponse copyObject(String sourceBucket, String sourceObject, String targetBucket,
+                                   String targetObject) throws Exception;
+
+    /**
+     * 服务端移动文件，复制完成后删除源文件，源文件与目标文件相同时失败且不删除
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @throws Exception 异常
+     */
+    void moveObject(String sourceBucket, String sourceObject, String targetBucket,
+                    String targetObject) throws Exception;
+
+    /**
+     * 按前缀服务端复制文件，目标文件名为目标前缀替换源前缀，同一个桶内目标前缀不能位于源前缀之下
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @return 复制的文件数
+     * @throws Exception 异常
+     */
+    int copyPrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                   String targetPrefix) throws Exception;
+
+    /**
+     * 按前缀服务端移动文件，全部复制成功后批量删除源文件，同一个桶内目标前缀不能位于源前缀之下
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @return 移动的文件数
+     * @throws Exception 异常
+     */
+    int movePrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                   String targetPrefix) throws Exception;
+
+    /**
+     * S3 Select查询，在服务端过滤，只有匹配的记录经过网络
+     *
+     * @param bucketName   桶名称
+     * @param objectName   文件名称
+     * @param sql          查询语句，如 select * from S3Object s where s.age > 18
+     * @param inputFormat  文件格式
+     * @param outputFormat 结果格式，支持CSV、JSON
+     * @return 逐条读取的查询结果，使用完毕需关闭
+     * @throws Exception 异常
+     */
+    SelectResult selectObject(String bucketName, String objectName, String sql, SelectFormat inputFormat,
+                              SelectFormat outputFormat) throws Exception;
 
+    /**
+     * S3 Select查询，使用自定义的输入格式，如分号分隔且无表头的CSV：
+     * SelectFormat.CSV.toInputSerialization(';', FileHeaderInfo.NONE)
+     *
+     * @param bucketName   桶名称
+     * @param objectName   文件名称
+     * @param sql          查询语句
+     * @param input        文件格式
+     * @param outputFormat 结果格式，支持CSV、JSON
+     * @return 逐条读取的查询结果，使用完毕需关闭
+     * @throws Exception 异常
+     */
+    SelectResult selectObject(String bucketName, String objectName, String sql, InputSerialization input,
+                              SelectFormat outputFormat) throws Exception;
+}
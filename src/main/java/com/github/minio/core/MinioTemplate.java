@@ -2,26 +2,37 @@ package com.github.minio.core;
 
 import com.github.minio.autoconfigure.MinioProperties;
 import com.github.minio.constant.StrConstant;
+import com.google.common.base.Suppliers;
 import io.minio.BucketExistsArgs;
 import io.minio.ComposeObjectArgs;
 import io.minio.ComposeSource;
 import io.minio.GetObjectArgs;
 import io.minio.ListObjectsArgs;
 import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.ObjectWriteResponse;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveBucketArgs;
 import io.minio.RemoveObjectArgs;
 import io.minio.Result;
+import io.minio.SelectObjectContentArgs;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Bucket;
+import io.minio.messages.InputSerialization;
 import io.minio.messages.Item;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * minio模板
@@ -31,18 +42,196 @@ import java.util.List;
  */
 public class MinioTemplate implements MinioOperations {
 
-    private MinioClient minioClient;
+    private Supplier<MinioClient> minioClient;
 
     private MinioProperties properties;
 
+    private Supplier<ExtendedMinioAsyncClient> extendedClient = () -> {
+        throw new IllegalStateException("minio async client is required for server side copy and pooled upload");
+    };
+
+    private final Supplier<ObjectCopier> objectCopier = Suppliers.memoize(
+            () -> new ObjectCopier(extendedClient.get(), properties.getCopyConcurrency()));
+
+    private PooledPartUploader partUploader;
+
+    private SpoolUploadQueue spoolUploadQueue;
+
+    private DedupUploader dedupUploader;
+
+    private RequestCoalescer requestCoalescer;
+
+    /**
+     * 请求合并标识的前缀，多个集群共用请求合并时区分集群
+     */
+    private String coalesceNamespace = "";
+
+    /**
+     * 是否就绪，开启预热时在预热完成后才就绪
+     */
+    private volatile boolean ready = true;
+
+    private volatile CompletableFuture<Void> warmUpFuture = CompletableFuture.completedFuture(null);
+
     public void setMinioClient(MinioClient minioClient) {
-        this.minioClient = minioClient;
+        this.minioClient = () -> minioClient;
+    }
+
+    /**
+     * 设置客户端提供者，客户端在首次使用时才创建
+     *
+     * @param supplier 客户端提供者
+     */
+    public void setMinioClientSupplier(Supplier<MinioClient> supplier) {
+        this.minioClient = Suppliers.memoize(supplier::get);
+    }
+
+    public MinioClient getMinioClient() {
+        return minioClient.get();
+    }
+
+    /**
+     * 设置异步客户端提供者，服务端复制、缓冲池上传等操作使用，首次使用时才创建
+     *
+     * @param supplier 异步客户端提供者
+     */
+    public void setMinioAsyncClientSupplier(Supplier<MinioAsyncClient> supplier) {
+        this.extendedClient = Suppliers.memoize(() -> new ExtendedMinioAsyncClient(supplier.get()));
+    }
+
+    /**
+     * 设置分片缓冲池，设置后分片上传使用缓冲池中的缓冲区，需同时设置异步客户端
+     *
+     * @param partBufferPool 分片缓冲池
+     */
+    public void setPartBufferPool(PartBufferPool partBufferPool) {
+        this.partUploader = new PooledPartUploader(partBufferPool);
+    }
+
+    /**
+     * 设置异步上传队列，设置后uploadFile写入本地目录后立即返回，由队列后台上传，返回的链接在上传完成前不可访问，
+     * uploadFileWithPart仍直接上传
+     *
+     * @param spoolUploadQueue 异步上传队列，未启动时使用当前模板启动
+     * @throws IOException 落盘目录不可用
+     */
+    public void setSpoolUploadQueue(SpoolUploadQueue spoolUploadQueue) throws IOException {
+        spoolUploadQueue.start(this::putObject);
+        this.spoolUploadQueue = spoolUploadQueue;
+    }
+
+    /**
+     * 设置去重上传，设置后相同内容只上传一次，原文件名处由服务端复制出完整文件，需同时设置异步客户端
+     *
+     * @param dedupUploader 去重上传
+     */
+    public void setDedupUploader(DedupUploader dedupUploader) {
+        this.dedupUploader = dedupUploader;
+    }
+
+    /**
+     * 设置请求合并，设置后同一文件并发的信息查询与小文件读取只发起一个请求
+     *
+     * @param requestCoalescer 请求合并
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        setRequestCoalescer(requestCoalescer, null);
+    }
+
+    /**
+     * 设置请求合并，多个集群共用同一个请求合并时按集群名称区分同名桶中的文件
+     *
+     * @param requestCoalescer 请求合并
+     * @param cluster          集群名称，默认集群为null
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer, String cluster) {
+        this.requestCoalescer = requestCoalescer;
+        this.coalesceNamespace = cluster == null ? "" : cluster + ":";
     }
 
     public void setProperties(MinioProperties properties) {
         this.properties = properties;
     }
 
+    /**
+     * 是否就绪
+     *
+     * @return boolean
+     */
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 连接预热，并行发起请求以预先建立连接，同时检查默认桶，阻塞到预热完成
+     *
+     * @param connections   预先建立的连接数，小于等于0时不预热
+     * @param timeoutMillis 超时时间，单位：毫秒
+     * @throws Exception 预热失败或默认桶不存在
+     */
+    public void warmUp(int connections, long timeoutMillis) throws Exception {
+        MinioFutures.await(warmUpAsync(connections, timeoutMillis));
+    }
+
+    /**
+     * 在后台连接预热，调用后立即变为未就绪，预热成功后才就绪，失败或超时时保持未就绪
+     *
+     * @param connections   预先建立的连接数，小于等于0时不预热
+     * @param timeoutMillis 超时时间，单位：毫秒
+     * @return 预热结果
+     */
+    public CompletableFuture<Void> warmUpAsync(int connections, long timeoutMillis) {
+        if (connections <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ready = false;
+        String bucketName = properties.getBucketName();
+        //每个连接一个线程，预热结束后回收
+        AtomicInteger index = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(connections, r -> {
+            Thread thread = new Thread(r, "minio-warmup-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return bucketName == null || bucketName.isEmpty()
+                            ? listBuckets() != null : bucketExists(bucketName);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else if (futures.stream().allMatch(CompletableFuture::join)) {
+                ready = true;
+                future.complete(null);
+            } else {
+                future.completeExceptionally(
+                        new IllegalStateException("minio default bucket not exists: " + bucketName));
+            }
+        });
+        //超时后保持未就绪，结束后中断仍在等待的请求
+        MinioFutures.timeout(future, timeoutMillis).whenComplete((v, e) -> executor.shutdownNow());
+        warmUpFuture = future;
+        return future;
+    }
+
+    /**
+     * 最近一次预热的结果，未预热时为已完成
+     *
+     * @return 预热结果
+     */
+    public CompletableFuture<Void> getWarmUpFuture() {
+        return warmUpFuture;
+    }
+
     /**
      * 创建桶
      *
@@ -51,7 +240,7 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public void createBucket(String bucketName) throws Exception {
-        minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+        getMinioClient().makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
     }
 
     /**
@@ -62,7 +251,7 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public List<Bucket> listBuckets() throws Exception {
-        return minioClient.listBuckets();
+        return getMinioClient().listBuckets();
     }
 
     /**
@@ -74,7 +263,7 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public boolean bucketExists(String bucketName) throws Exception {
-        return minioClient.bucketExists(BucketExistsArgs.builder()
+        return getMinioClient().bucketExists(BucketExistsArgs.builder()
                 .bucket(bucketName)
                 .build());
     }
@@ -87,21 +276,29 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public void deleteBucket(String bucketName) throws Exception {
-        minioClient.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+        getMinioClient().removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
     }
 
     /**
      * 单文件上传
+     * <p>
+     * 设置异步上传队列时写入本地目录后即返回链接，此时文件尚未上传到minio，后台上传完成后链接才可访问，
+     * 需要等待上传结果时使用MinioAsyncTemplate的uploadFile
      *
      * @param bucketName  桶名称
      * @param objectName  文件名称
      * @param ins         输入流
      * @param contentType 文件mime
      * @return str
-     * @throws Exception 异常
+     * @throws Exception 异常，落盘目录容量不足时为IllegalStateException
      */
     @Override
     public String uploadFile(String bucketName, String objectName, InputStream ins, Long size, String contentType) throws Exception {
+        if (spoolUploadQueue != null) {
+            spoolUploadQueue.enqueue(bucketName, objectName, ins, size, contentType);
+            ins.close();
+            return properties.getPrefixLink() + StrConstant.BIAS + bucketName + StrConstant.BIAS + objectName;
+        }
         return uploadFileWithPart(bucketName, objectName, ins, size, contentType);
     }
 
@@ -116,7 +313,7 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public String uploadFile(String objectName, InputStream ins, Long size, String contentType) throws Exception {
-        return uploadFileWithPart(properties.getBucketName(), objectName, ins, size, contentType);
+        return uploadFile(properties.getBucketName(), objectName, ins, size, contentType);
     }
 
     /**
@@ -131,15 +328,32 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public String uploadFileWithPart(String bucketName, String objectName, InputStream stream, Long size, String contentType) throws Exception {
+        putObject(bucketName, objectName, stream, size, contentType);
+        stream.close();
+        return properties.getPrefixLink() + StrConstant.BIAS + bucketName + StrConstant.BIAS + objectName;
+    }
+
+    private ObjectWriteResponse putObject(String bucketName, String objectName, InputStream stream, Long size,
+                                          String contentType) throws Exception {
+        if (dedupUploader != null) {
+            return dedupUploader.upload(extendedClient.get(), this::putContent, bucketName, objectName, stream,
+                    size, contentType);
+        }
+        return putContent(bucketName, objectName, stream, size, contentType);
+    }
+
+    private ObjectWriteResponse putContent(String bucketName, String objectName, InputStream stream, Long size,
+                                           String contentType) throws Exception {
+        if (partUploader != null && partUploader.supports(size)) {
+            return partUploader.upload(extendedClient.get(), bucketName, objectName, stream, size, contentType);
+        }
         PutObjectArgs args = PutObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
                 .stream(stream, size, properties.getPartSize())
                 .contentType(contentType)
                 .build();
-        minioClient.putObject(args);
-        stream.close();
-        return properties.getPrefixLink() + StrConstant.BIAS + bucketName + StrConstant.BIAS + objectName;
+        return getMinioClient().putObject(args);
     }
 
     /**
@@ -152,10 +366,13 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public StatObjectResponse getFileInfo(String bucketName, String objectName) throws Exception {
-        return minioClient.statObject(StatObjectArgs.builder()
+        StatObjectArgs args = StatObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .build());
+                .build();
+        return requestCoalescer == null ? getMinioClient().statObject(args)
+                : requestCoalescer.stat(coalesceNamespace + bucketName + StrConstant.BIAS + objectName,
+                () -> getMinioClient().statObject(args));
     }
 
     /**
@@ -170,13 +387,18 @@ public class MinioTemplate implements MinioOperations {
     @Override
     public List<Item> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) throws Exception {
         List<Item> objectList = new ArrayList<>();
-        Iterable<Result<Item>> objectsIterator = minioClient.listObjects(ListObjectsArgs.builder()
+        Iterable<Result<Item>> objectsIterator = getMinioClient().listObjects(ListObjectsArgs.builder()
                 .bucket(bucketName)
                 .prefix(prefix)
                 .recursive(recursive)
                 .build());
-        while (objectsIterator.iterator().hasNext()) {
-            objectList.add(objectsIterator.iterator().next().get());
+        //每次调用iterator()都会从头列举，只能遍历同一个迭代器
+        for (Result<Item> result : objectsIterator) {
+            Item item = result.get();
+            //去重上传的索引对象不属于用户文件
+            if (dedupUploader == null || !dedupUploader.isContent(item.objectName())) {
+                objectList.add(item);
+            }
         }
         return objectList;
     }
@@ -191,10 +413,13 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public InputStream getObject(String bucketName, String objectName) throws Exception {
-        return minioClient.getObject(GetObjectArgs.builder()
+        GetObjectArgs args = GetObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .build());
+                .build();
+        return requestCoalescer == null ? getMinioClient().getObject(args)
+                : requestCoalescer.getObject(coalesceNamespace + bucketName + StrConstant.BIAS + objectName,
+                () -> getMinioClient().getObject(args));
     }
 
     /**
@@ -206,7 +431,7 @@ public class MinioTemplate implements MinioOperations {
      */
     @Override
     public void removeObject(String bucketName, String objectName) throws Exception {
-        minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName)
+        getMinioClient().removeObject(RemoveObjectArgs.builder().bucket(bucketName)
                 .object(objectName).build());
     }
 
@@ -229,11 +454,116 @@ public class MinioTemplate implements MinioOperations {
                     .build();
             sources.add(composeSource);
         }
-        return minioClient.composeObject(ComposeObjectArgs.builder()
+        return getMinioClient().composeObject(ComposeObjectArgs.builder()
                 .bucket(bucketName)
                 .sources(sources)
                 .object(targetObjectName)
                 .build());
 
     }
+
+    /**
+     * 服务端复制文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @return obj
+     * @throws Exception ex
+     */
+    @Override
+    public ObjectWriteResponse copyObject(String sourceBucket, String sourceObject, String targetBucket,
+                                          String targetObject) throws Exception {
+        return MinioFutures.await(objectCopier.get().copyObject(sourceBucket, sourceObject, targetBucket, targetObject));
+    }
+
+    /**
+     * 服务端移动文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @throws Exception ex
+     */
+    @Override
+    public void moveObject(String sourceBucket, String sourceObject, String targetBucket,
+                           String targetObject) throws Exception {
+        MinioFutures.await(objectCopier.get().moveObject(sourceBucket, sourceObject, targetBucket, targetObject));
+    }
+
+    /**
+     * 按前缀服务端复制文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @return 复制的文件数
+     * @throws Exception ex
+     */
+    @Override
+    public int copyPrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                          String targetPrefix) throws Exception {
+        return MinioFutures.await(objectCopier.get().copyPrefix(sourceBucket, sourcePrefix, targetBucket,
+                targetPrefix, false));
+    }
+
+    /**
+     * 按前缀服务端移动文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @return 移动的文件数
+     * @throws Exception ex
+     */
+    @Override
+    public int movePrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                          String targetPrefix) throws Exception {
+        return MinioFutures.await(objectCopier.get().copyPrefix(sourceBucket, sourcePrefix, targetBucket,
+                targetPrefix, true));
+    }
+
+    /**
+     * S3 Select查询
+     *
+     * @param bucketName   桶名称
+     * @param objectName   文件名称
+     * @param sql          查询语句
+     * @param inputFormat  文件格式
+     * @param outputFormat 结果格式
+     * @return 查询结果
+     * @throws Exception ex
+     */
+    @Override
+    public SelectResult selectObject(String bucketName, String objectName, String sql, SelectFormat inputFormat,
+                                     SelectFormat outputFormat) throws Exception {
+        return selectObject(bucketName, objectName, sql, inputFormat.toInputSerialization(), outputFormat);
+    }
+
+    /**
+     * S3 Select查询，使用自定义的输入格式
+     *
+     * @param bucketName   桶名称
+     * @param objectName   文件名称
+     * @param sql          查询语句
+     * @param input        文件格式
+     * @param outputFormat 结果格式
+     * @return 查询结果
+     * @throws Exception ex
+     */
+    @Override
+    public SelectResult selectObject(String bucketName, String objectName, String sql, InputSerialization input,
+                                     SelectFormat outputFormat) throws Exception {
+        return new SelectResult(getMinioClient().selectObjectContent(SelectObjectContentArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .sqlExpression(sql)
+                .inputSerialization(input)
+                .outputSerialization(outputFormat.toOutputSerialization())
+                .build()), outputFormat);
+    }
 }
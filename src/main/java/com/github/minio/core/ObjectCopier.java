@@ -0,0 +1,387 @@
+package com.github.minio.core;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectTagsArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.ObjectWriteArgs;
+import io.minio.ObjectWriteResponse;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.S3Escaper;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import io.minio.messages.Tags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.minio.core.MinioFutures.call;
+import static com.github.minio.core.MinioFutures.failedFuture;
+
+/**
+ * 服务端复制，数据不经过客户端
+ * <p>
+ * 超过5GB的文件拆分为多个UploadPartCopy范围并行复制；按前缀复制时边分页列举边复制，同时进行中的复制数不超过并发数
+ * <p>
+ * 分页列举与批量删除是阻塞调用，在独立的线程池中执行，不占用http客户端的回调线程
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+class ObjectCopier {
+    /**
+     * 分片复制时的默认分片大小，512MB
+     */
+    private static final long COPY_PART_SIZE = 512L * 1024 * 1024;
+    /**
+     * 单次批量删除的最大数量
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+    /**
+     * 分片复制时从源文件沿用的标准响应头，与单次CopyObject保持一致
+     */
+    private static final String[] COPY_HEADERS = {"Cache-Control", "Content-Disposition", "Content-Encoding",
+            "Content-Language", "Content-Type", "Expires"};
+
+    private final ExtendedMinioAsyncClient client;
+
+    private final int concurrency;
+
+    /**
+     * 执行分页列举与批量删除的线程池，空闲时回收线程
+     */
+    private final ThreadPoolExecutor executor;
+
+    ObjectCopier(ExtendedMinioAsyncClient client, int concurrency) {
+        this.client = client;
+        this.concurrency = Math.max(1, concurrency);
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.concurrency, this.concurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "minio-copy-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 复制文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @return obj，源文件与目标文件相同时失败
+     */
+    CompletableFuture<ObjectWriteResponse> copyObject(String sourceBucket, String sourceObject,
+                                                      String targetBucket, String targetObject) {
+        //复制到自身没有意义，移动时还会删除唯一的一份
+        if (sourceBucket.equals(targetBucket) && sourceObject.equals(targetObject)) {
+            return failedFuture(new IllegalArgumentException("minio source and target are the same object: "
+                    + sourceBucket + "/" + sourceObject));
+        }
+        return call(() -> client.statObject(StatObjectArgs.builder()
+                .bucket(sourceBucket)
+                .object(sourceObject)
+                .build()))
+                .thenCompose(stat -> stat.size() > ObjectWriteArgs.MAX_PART_SIZE
+                        ? multipartCopy(stat, targetBucket, targetObject)
+                        : call(() -> client.copyObject(CopyObjectArgs.builder()
+                        .bucket(targetBucket)
+                        .object(targetObject)
+                        .source(CopySource.builder()
+                                .bucket(sourceBucket)
+                                .object(sourceObject)
+                                .matchETag(stat.etag())
+                                .build())
+                        .build())));
+    }
+
+    /**
+     * 移动文件，复制完成后删除源文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourceObject 源文件名称
+     * @param targetBucket 目标桶名称
+     * @param targetObject 目标文件名称
+     * @return obj，源文件与目标文件相同时失败且不删除
+     */
+    CompletableFuture<Void> moveObject(String sourceBucket, String sourceObject,
+                                       String targetBucket, String targetObject) {
+        return copyObject(sourceBucket, sourceObject, targetBucket, targetObject)
+                .thenCompose(response -> call(() -> client.removeObject(RemoveObjectArgs.builder()
+                        .bucket(sourceBucket)
+                        .object(sourceObject)
+                        .build())));
+    }
+
+    /**
+     * 按前缀复制文件
+     *
+     * @param sourceBucket 源桶名称
+     * @param sourcePrefix 源文件前缀
+     * @param targetBucket 目标桶名称
+     * @param targetPrefix 目标文件前缀
+     * @param move         是否在全部复制成功后批量删除源文件
+     * @return 复制的文件数，同一个桶内目标前缀位于源前缀之下时失败
+     */
+    CompletableFuture<Integer> copyPrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                                          String targetPrefix, boolean move) {
+        String fromPrefix = sourcePrefix == null ? "" : sourcePrefix;
+        String toPrefix = targetPrefix == null ? "" : targetPrefix;
+        //复制出的文件会再次被列举到，移动时还会删除刚复制的文件
+        if (sourceBucket.equals(targetBucket) && toPrefix.startsWith(fromPrefix)) {
+            return failedFuture(new IllegalArgumentException("minio target prefix is inside source prefix: "
+                    + sourceBucket + "/" + fromPrefix + " -> " + toPrefix));
+        }
+        Iterator<Result<Item>> items = client.listObjects(ListObjectsArgs.builder()
+                .bucket(sourceBucket)
+                .prefix(fromPrefix)
+                .recursive(true)
+                .build()).iterator();
+        List<String> copied = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Void>> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(copyNext(items, failed, copied, sourceBucket, fromPrefix, targetBucket, toPrefix));
+        }
+        return CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(v -> {
+                    if (move) {
+                        removeObjects(sourceBucket, copied);
+                    }
+                    return copied.size();
+                }, executor);
+    }
+
+    /**
+     * 单个复制任务：从列举结果中取下一个文件复制，完成后继续取下一个，直到列举结束或出现失败
+     */
+    private CompletableFuture<Void> copyNext(Iterator<Result<Item>> items, AtomicBoolean failed, List<String> copied,
+                                             String sourceBucket, String sourcePrefix,
+                                             String targetBucket, String targetPrefix) {
+        return CompletableFuture.supplyAsync(() -> nextItem(items, failed), executor)
+                .thenCompose(item -> {
+                    if (item == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    String sourceObject = item.objectName();
+                    String targetObject = targetPrefix + sourceObject.substring(sourcePrefix.length());
+                    return copyObject(sourceBucket, sourceObject, targetBucket, targetObject)
+                            .handle((response, e) -> {
+                                if (e != null) {
+                                    failed.set(true);
+                                    throw e instanceof CompletionException
+                                            ? (CompletionException) e : new CompletionException(e);
+                                }
+                                synchronized (copied) {
+                                    copied.add(sourceObject);
+                                }
+                                return response;
+                            })
+                            .thenCompose(response -> copyNext(items, failed, copied, sourceBucket, sourcePrefix,
+                                    targetBucket, targetPrefix));
+                });
+    }
+
+    /**
+     * 取下一个文件，列举结束或已失败时返回null
+     */
+    private static Item nextItem(Iterator<Result<Item>> items, AtomicBoolean failed) {
+        try {
+            synchronized (items) {
+                //分页列举在迭代时按需拉取下一页
+                Item item;
+                do {
+                    if (failed.get() || !items.hasNext()) {
+                        return null;
+                    }
+                    item = items.next().get();
+                } while (item.isDir());
+                return item;
+            }
+        } catch (Exception e) {
+            failed.set(true);
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * 分片并行复制超过5GB的文件，沿用源文件的标准响应头、自定义元数据与标签；
+     * 任一分片失败时不再发起新的分片并立即取消分片上传，进行中的分片随之失败
+     */
+    private CompletableFuture<ObjectWriteResponse> multipartCopy(StatObjectResponse source,
+                                                                 String targetBucket, String targetObject) {
+        long size = source.size();
+        long partSize = Math.max(COPY_PART_SIZE, (size + ObjectWriteArgs.MAX_MULTIPART_COUNT - 1)
+                / ObjectWriteArgs.MAX_MULTIPART_COUNT);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        return tags(source)
+                .thenCompose(tags -> call(() -> client.createMultipartUpload(targetBucket, targetObject,
+                        copyHeaders(source, tags))))
+                .thenCompose(created -> {
+                    String uploadId = created.result().uploadId();
+                    PartCopy copy = new PartCopy(source, targetBucket, targetObject, uploadId, partSize, partCount);
+                    List<CompletableFuture<Void>> workers = new ArrayList<>(concurrency);
+                    for (int i = 0; i < Math.min(concurrency, partCount); i++) {
+                        workers.add(copyNextPart(copy));
+                    }
+                    CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]))
+                            .thenCompose(v -> copy.failed.get() ? copy.result
+                                    : call(() -> client.completeMultipartUpload(
+                                    targetBucket, targetObject, uploadId, copy.parts)))
+                            .whenComplete((response, e) -> {
+                                if (e != null) {
+                                    copy.fail(e);
+                                } else {
+                                    copy.result.complete(response);
+                                }
+                            });
+                    return copy.result;
+                });
+    }
+
+    private CompletableFuture<Void> copyNextPart(PartCopy copy) {
+        int index = copy.next.getAndIncrement();
+        if (copy.failed.get() || index >= copy.parts.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        StatObjectResponse source = copy.source;
+        long start = index * copy.partSize;
+        long end = Math.min(source.size(), start + copy.partSize) - 1;
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("x-amz-copy-source", S3Escaper.encodePath(source.bucket() + "/" + source.object()));
+        headers.put("x-amz-copy-source-range", "bytes=" + start + "-" + end);
+        //复制过程中源文件被修改时失败，避免拼出不一致的文件
+        headers.put("x-amz-copy-source-if-match", source.etag());
+        return call(() -> client.uploadPartCopy(copy.targetBucket, copy.targetObject, copy.uploadId, index + 1,
+                headers))
+                .handle((response, e) -> {
+                    if (e != null) {
+                        //立即取消，其他分片不必等待
+                        copy.fail(e);
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    copy.parts[index] = new Part(index + 1, response.result().etag());
+                    return copyNextPart(copy);
+                })
+                .thenCompose(next -> next);
+    }
+
+    /**
+     * 源文件的标签，没有标签时不查询
+     */
+    private CompletableFuture<Map<String, String>> tags(StatObjectResponse source) {
+        String count = source.headers().get("x-amz-tagging-count");
+        if (count == null || "0".equals(count)) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        return call(() -> client.getObjectTags(GetObjectTagsArgs.builder()
+                .bucket(source.bucket())
+                .object(source.object())
+                .build()))
+                .thenApply(Tags::get);
+    }
+
+    private static Multimap<String, String> copyHeaders(StatObjectResponse source, Map<String, String> tags) {
+        Multimap<String, String> headers = HashMultimap.create();
+        for (String name : COPY_HEADERS) {
+            String value = source.headers().get(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        for (Map.Entry<String, String> entry : source.userMetadata().entrySet()) {
+            headers.put("x-amz-meta-" + entry.getKey(), entry.getValue());
+        }
+        if (!tags.isEmpty()) {
+            StringJoiner tagging = new StringJoiner("&");
+            for (Map.Entry<String, String> entry : tags.entrySet()) {
+                tagging.add(S3Escaper.encode(entry.getKey()) + "=" + S3Escaper.encode(entry.getValue()));
+            }
+            headers.put("x-amz-tagging", tagging.toString());
+        }
+        return headers;
+    }
+
+    /**
+     * 一次分片复制的状态
+     */
+    private final class PartCopy {
+        private final StatObjectResponse source;
+        private final String targetBucket;
+        private final String targetObject;
+        private final String uploadId;
+        private final long partSize;
+        private final Part[] parts;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final CompletableFuture<ObjectWriteResponse> result = new CompletableFuture<>();
+
+        private PartCopy(StatObjectResponse source, String targetBucket, String targetObject, String uploadId,
+                         long partSize, int partCount) {
+            this.source = source;
+            this.targetBucket = targetBucket;
+            this.targetObject = targetObject;
+            this.uploadId = uploadId;
+            this.partSize = partSize;
+            this.parts = new Part[partCount];
+        }
+
+        /**
+         * 首次失败时取消分片上传并返回失败
+         */
+        private void fail(Throwable e) {
+            if (failed.compareAndSet(false, true)) {
+                call(() -> client.abortMultipartUpload(targetBucket, targetObject, uploadId));
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 分批批量删除文件
+     */
+    private void removeObjects(String bucketName, List<String> objectNames) {
+        for (int from = 0; from < objectNames.size(); from += DELETE_BATCH_SIZE) {
+            List<DeleteObject> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+            for (String objectName : objectNames.subList(from, Math.min(objectNames.size(), from + DELETE_BATCH_SIZE))) {
+                batch.add(new DeleteObject(objectName));
+            }
+            //删除结果是惰性的，遍历时才真正发起请求
+            for (Result<DeleteError> result : client.removeObjects(RemoveObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .objects(batch)
+                    .build())) {
+                DeleteError error;
+                try {
+                    error = result.get();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+                throw new IllegalStateException("minio remove object failed: " + error.objectName()
+                        + ", " + error.message());
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.minio.core;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程级分片缓冲池，所有上传共用同一份内存预算，缓冲区在上传之间复用
+ * <p>
+ * 预算耗尽时等待其他上传归还缓冲区，超过等待时间仍未获取到则失败
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class PartBufferPool {
+
+    private final int bufferSize;
+
+    private final int capacity;
+
+    /**
+     * 获取缓冲区的等待时间，单位：毫秒，小于等于0时不等待
+     */
+    private final long acquireTimeout;
+
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedDeque<byte[]> free = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param maxBytes       内存预算，单位：字节
+     * @param bufferSize     单个缓冲区大小，即分片大小，单位：字节
+     * @param acquireTimeout 获取缓冲区的等待时间，单位：毫秒，小于等于0时预算耗尽立即失败
+     */
+    public PartBufferPool(long maxBytes, long bufferSize, long acquireTimeout) {
+        if (bufferSize <= 0 || bufferSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("minio part buffer size out of range: " + bufferSize);
+        }
+        this.bufferSize = (int) bufferSize;
+        this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / bufferSize));
+        this.acquireTimeout = acquireTimeout;
+        this.permits = new Semaphore(capacity, true);
+    }
+
+    /**
+     * 获取缓冲区，使用完毕必须调用{@link #release(byte[])}归还
+     *
+     * @return 缓冲区
+     * @throws InterruptedException 等待时被中断
+     */
+    public byte[] acquire() throws InterruptedException {
+        if (!permits.tryAcquire()) {
+            boolean acquired = false;
+            //不等待时直接失败，不计入等待
+            if (acquireTimeout > 0) {
+                long start = System.nanoTime();
+                acquired = permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS);
+                waitCount.incrementAndGet();
+                waitNanos.addAndGet(System.nanoTime() - start);
+            }
+            if (!acquired) {
+                rejectedCount.incrementAndGet();
+                throw new IllegalStateException("minio upload buffer budget exhausted, capacity: " + capacity);
+            }
+        }
+        byte[] buffer = free.pollFirst();
+        if (buffer == null) {
+            buffer = new byte[bufferSize];
+            allocated.incrementAndGet();
+        }
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区
+     *
+     * @param buffer 缓冲区
+     */
+    public void release(byte[] buffer) {
+        free.offerFirst(buffer);
+        permits.release();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 缓冲区总数
+     *
+     * @return int
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 使用中的缓冲区数
+     *
+     * @return int
+     */
+    public int getInUse() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * 已分配的缓冲区数
+     *
+     * @return int
+     */
+    public int getAllocated() {
+        return allocated.get();
+    }
+
+    /**
+     * 发生等待的次数
+     *
+     * @return long
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * 累计等待时间，单位：纳秒
+     *
+     * @return long
+     */
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * 因预算耗尽而失败的次数
+     *
+     * @return long
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.minio.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片缓冲池指标
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class PartBufferPoolMetrics implements MeterBinder {
+
+    private final PartBufferPool pool;
+
+    public PartBufferPoolMetrics(PartBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("minio.buffer.pool.capacity", pool, p -> (double) p.getCapacity() * p.getBufferSize())
+                .baseUnit("bytes")
+                .description("内存预算")
+                .register(registry);
+        Gauge.builder("minio.buffer.pool.used", pool, p -> (double) p.getInUse() * p.getBufferSize())
+                .baseUnit("bytes")
+                .description("使用中的缓冲区大小")
+                .register(registry);
+        Gauge.builder("minio.buffer.pool.allocated", pool, p -> (double) p.getAllocated() * p.getBufferSize())
+                .baseUnit("bytes")
+                .description("已分配的缓冲区大小")
+                .register(registry);
+        FunctionTimer.builder("minio.buffer.pool.wait", pool,
+                        PartBufferPool::getWaitCount, PartBufferPool::getWaitNanos, TimeUnit.NANOSECONDS)
+                .description("预算耗尽时等待缓冲区的时间")
+                .register(registry);
+        FunctionCounter.builder("minio.buffer.pool.rejected", pool, p -> (double) p.getRejectedCount())
+                .description("等待超时而失败的上传数")
+                .register(registry);
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.minio.core;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.ObjectWriteArgs;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 使用缓冲池中的缓冲区上传文件，每个上传同一时刻只占用一个缓冲区，逐个分片读取并上传
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+class PooledPartUploader {
+
+    private final PartBufferPool pool;
+
+    PooledPartUploader(PartBufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 文件大小超过缓冲区大小乘以最大分片数时，缓冲区放不下单个分片，不能使用缓冲池
+     *
+     * @param size 文件大小，未知时为-1
+     * @return boolean
+     */
+    boolean supports(Long size) {
+        return size == null || size < 0 || size <= (long) pool.getBufferSize() * ObjectWriteArgs.MAX_MULTIPART_COUNT;
+    }
+
+    /**
+     * 上传文件，不超过一个缓冲区时直接上传，否则分片上传，失败时取消分片上传
+     *
+     * @param client      客户端
+     * @param bucketName  桶名称
+     * @param objectName  文件名称
+     * @param stream      文件流
+     * @param size        文件大小，未知时为-1
+     * @param contentType MIME类型
+     * @return obj
+     * @throws Exception 异常
+     */
+    ObjectWriteResponse upload(ExtendedMinioAsyncClient client, String bucketName, String objectName,
+                               InputStream stream, Long size, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        long remaining = size == null || size < 0 ? -1 : size;
+        byte[] buffer = pool.acquire();
+        try {
+            int length = read(stream, buffer, remaining);
+            if (length < buffer.length || remaining == length) {
+                return MinioFutures.await(client.putObject(bucketName, objectName, buffer, length, headers));
+            }
+            String uploadId = MinioFutures.await(client.createMultipartUpload(bucketName, objectName, headers))
+                    .result().uploadId();
+            try {
+                List<Part> parts = new ArrayList<>();
+                while (length > 0) {
+                    int partNumber = parts.size() + 1;
+                    parts.add(new Part(partNumber, MinioFutures.await(client.uploadPart(
+                            bucketName, objectName, uploadId, partNumber, buffer, length)).etag()));
+                    if (remaining > 0) {
+                        remaining -= length;
+                    }
+                    length = remaining == 0 ? 0 : read(stream, buffer, remaining);
+                }
+                return MinioFutures.await(client.completeMultipartUpload(bucketName, objectName, uploadId,
+                        parts.toArray(new Part[0])));
+            } catch (Exception e) {
+                //等待取消完成，取消失败时附加到原始异常上
+                try {
+                    MinioFutures.await(client.abortMultipartUpload(bucketName, objectName, uploadId));
+                } catch (Exception abortException) {
+                    e.addSuppressed(abortException);
+                }
+                throw e;
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * 读满缓冲区或读到剩余大小，流提前结束且大小已知时失败
+     */
+    private static int read(InputStream stream, byte[] buffer, long remaining) throws IOException {
+        int limit = remaining < 0 ? buffer.length : (int) Math.min(buffer.length, remaining);
+        int length = 0;
+        while (length < limit) {
+            int n = stream.read(buffer, length, limit - length);
+            if (n < 0) {
+                if (remaining >= 0) {
+                    throw new IOException("unexpected end of stream, " + (remaining - length) + " bytes missing");
+                }
+                break;
+            }
+            length += n;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,495 @@
+package com.github.minio.core;
+
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 并发相同请求合并，同一文件同时只发起一个请求，其余请求等待并共享结果
+ * <p>
+ * 文件信息查询直接共享结果；小文件读取时由首个请求读取完整内容到共享缓冲区，再分发给所有等待者，
+ * 共享缓冲区总大小受内存预算限制，文件过大或预算耗尽时等待者各自发起请求；只合并同时进行的请求，不缓存结果。
+ * 共享内容占用的预算在所有副本关闭或读取完后才释放，未关闭就被丢弃的副本在被垃圾回收后释放
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class RequestCoalescer {
+
+    /**
+     * 可共享的最大文件大小，单位：字节
+     */
+    private final long maxObjectSize;
+
+    /**
+     * 共享缓冲区内存预算，单位：字节
+     */
+    private final long maxBytes;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private final ConcurrentMap<String, CompletableFuture<?>> stats = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CompletableFuture<SharedObject>> objects = new ConcurrentHashMap<>();
+
+    private final AtomicLong statRequests = new AtomicLong();
+
+    private final AtomicLong statJoined = new AtomicLong();
+
+    private final AtomicLong getRequests = new AtomicLong();
+
+    private final AtomicLong getJoined = new AtomicLong();
+
+    private final AtomicLong getBypassed = new AtomicLong();
+
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    /**
+     * 未关闭就不可达的副本，每次占用预算前释放其引用
+     */
+    private final ReferenceQueue<SharedObject.SharedStream> unreachable = new ReferenceQueue<>();
+
+    /**
+     * 未关闭的副本，保证虚引用在副本被回收前不被回收
+     */
+    private final Set<StreamReference> streams = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 异步读取时读取完整内容的线程池，空闲时回收线程
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param maxObjectSize 可共享的最大文件大小，单位：字节
+     * @param maxBytes      共享缓冲区内存预算，单位：字节
+     * @param threads       异步读取时读取完整内容的线程数
+     */
+    public RequestCoalescer(long maxObjectSize, long maxBytes, int threads) {
+        //共享内容保存在单个数组中
+        this.maxObjectSize = Math.min(maxObjectSize, Integer.MAX_VALUE - 8);
+        this.maxBytes = maxBytes;
+        int size = Math.max(1, threads);
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "minio-coalesce-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 合并文件信息查询，在首个请求的线程中执行
+     *
+     * @param key  请求标识
+     * @param call 查询
+     * @param <T>  结果类型
+     * @return 结果
+     * @throws Exception 查询失败，所有等待者抛出相同异常
+     */
+    public <T> T stat(String key, Callable<T> call) throws Exception {
+        return MinioFutures.await(statAsync(key, () -> {
+            try {
+                return CompletableFuture.completedFuture(call.call());
+            } catch (Exception e) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }));
+    }
+
+    /**
+     * 合并异步文件信息查询
+     *
+     * @param key  请求标识
+     * @param call 查询
+     * @param <T>  结果类型
+     * @return 结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> statAsync(String key, Callable<CompletableFuture<T>> call) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<?> existing = stats.putIfAbsent(key, flight);
+        if (existing != null) {
+            statJoined.incrementAndGet();
+            //等待者各自持有副本，取消时不影响其他请求
+            return ((CompletableFuture<T>) existing).thenApply(Function.identity());
+        }
+        statRequests.incrementAndGet();
+        MinioFutures.call(call).whenComplete((result, e) -> {
+            //先移除再完成，完成后到达的请求重新发起
+            stats.remove(key, flight);
+            if (e != null) {
+                flight.completeExceptionally(e);
+            } else {
+                flight.complete(result);
+            }
+        });
+        return flight.thenApply(Function.identity());
+    }
+
+    /**
+     * 合并文件读取，在首个请求的线程中执行
+     *
+     * @param key   请求标识
+     * @param fetch 读取
+     * @return 文件流，共享时为内存中的副本
+     * @throws Exception 读取失败，所有等待者抛出相同异常
+     */
+    public GetObjectResponse getObject(String key, Callable<GetObjectResponse> fetch) throws Exception {
+        CompletableFuture<SharedObject> flight = new CompletableFuture<>();
+        CompletableFuture<SharedObject> existing = objects.putIfAbsent(key, flight);
+        if (existing != null) {
+            GetObjectResponse response = join(MinioFutures.await(existing));
+            if (response != null) {
+                return response;
+            }
+            getBypassed.incrementAndGet();
+            return fetch.call();
+        }
+        getRequests.incrementAndGet();
+        SharedObject shared;
+        try {
+            GetObjectResponse response = fetch.call();
+            shared = share(response);
+            if (shared == null) {
+                complete(key, flight, null);
+                return response;
+            }
+        } catch (Exception e) {
+            objects.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        GetObjectResponse result = shared.newResponse();
+        complete(key, flight, shared);
+        return result;
+    }
+
+    /**
+     * 合并异步文件读取，共享时在独立的线程池中读取完整内容，不占用http客户端的回调线程
+     *
+     * @param key   请求标识
+     * @param fetch 读取
+     * @return 文件流，共享时为内存中的副本
+     */
+    public CompletableFuture<GetObjectResponse> getObjectAsync(
+            String key, Callable<CompletableFuture<GetObjectResponse>> fetch) {
+        CompletableFuture<SharedObject> flight = new CompletableFuture<>();
+        CompletableFuture<SharedObject> existing = objects.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.thenCompose(shared -> MinioFutures.call(() -> {
+                GetObjectResponse response = join(shared);
+                return response != null ? CompletableFuture.completedFuture(response) : bypass(fetch);
+            }));
+        }
+        getRequests.incrementAndGet();
+        return MinioFutures.call(fetch)
+                .thenApplyAsync(response -> {
+                    SharedObject shared;
+                    try {
+                        shared = share(response);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    //先取得自己的副本再释放首个请求持有的引用
+                    GetObjectResponse result = shared == null ? response : shared.newResponse();
+                    complete(key, flight, shared);
+                    return result;
+                }, executor)
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        objects.remove(key, flight);
+                        flight.completeExceptionally(e);
+                    }
+                });
+    }
+
+    /**
+     * 取得共享内容的副本
+     *
+     * @param shared 共享内容，不能共享时为null
+     * @return 副本，不能共享或预算不足时为null，由调用方各自发起请求
+     */
+    private GetObjectResponse join(SharedObject shared) {
+        GetObjectResponse response = shared == null ? null : shared.newResponse();
+        if (response != null) {
+            getJoined.incrementAndGet();
+        }
+        return response;
+    }
+
+    private <T> CompletableFuture<T> bypass(Callable<CompletableFuture<T>> fetch) throws Exception {
+        getBypassed.incrementAndGet();
+        return fetch.call();
+    }
+
+    private void complete(String key, CompletableFuture<SharedObject> flight, SharedObject shared) {
+        objects.remove(key, flight);
+        flight.complete(shared);
+        if (shared != null) {
+            //已到达的等待者在complete中同步取得副本，之后释放首个请求持有的引用
+            shared.release();
+        }
+    }
+
+    /**
+     * 文件大小在限制内且预算充足时读取完整内容
+     *
+     * @param response 响应
+     * @return 共享内容，不能共享时为null
+     */
+    private SharedObject share(GetObjectResponse response) throws IOException {
+        String contentLength = response.headers().get("Content-Length");
+        long length = contentLength == null ? -1 : Long.parseLong(contentLength);
+        if (length < 0 || length > maxObjectSize || !reserve(length)) {
+            return null;
+        }
+        byte[] data = new byte[(int) length];
+        try (GetObjectResponse r = response) {
+            int offset = 0;
+            while (offset < data.length) {
+                int n = r.read(data, offset, data.length - offset);
+                if (n < 0) {
+                    throw new IOException("unexpected end of stream, " + (data.length - offset) + " bytes missing");
+                }
+                offset += n;
+            }
+        } catch (IOException | RuntimeException e) {
+            usedBytes.addAndGet(-length);
+            throw e;
+        }
+        return new SharedObject(response, data);
+    }
+
+    /**
+     * 占用预算，每次占用都检查内存预算
+     *
+     * @param length 字节数
+     * @return 预算不足时为false
+     */
+    private boolean reserve(long length) {
+        expunge();
+        while (true) {
+            long used = usedBytes.get();
+            if (used + length > maxBytes) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, used + length)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放未关闭就被垃圾回收的副本持有的引用
+     */
+    private void expunge() {
+        Reference<? extends SharedObject.SharedStream> reference;
+        while ((reference = unreachable.poll()) != null) {
+            if (((StreamReference) reference).release()) {
+                reclaimed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 共享缓冲区已使用的大小
+     *
+     * @return 字节数
+     */
+    public long getUsedBytes() {
+        expunge();
+        return usedBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 实际发起的文件信息查询数
+     *
+     * @return long
+     */
+    public long getStatRequests() {
+        return statRequests.get();
+    }
+
+    /**
+     * 合并到进行中查询的文件信息查询数
+     *
+     * @return long
+     */
+    public long getStatJoined() {
+        return statJoined.get();
+    }
+
+    /**
+     * 实际发起的文件读取数，不含不能共享时各自发起的读取
+     *
+     * @return long
+     */
+    public long getGetRequests() {
+        return getRequests.get();
+    }
+
+    /**
+     * 共享进行中读取结果的文件读取数
+     *
+     * @return long
+     */
+    public long getGetJoined() {
+        return getJoined.get();
+    }
+
+    /**
+     * 文件过大或预算耗尽而各自发起的文件读取数
+     *
+     * @return long
+     */
+    public long getGetBypassed() {
+        return getBypassed.get();
+    }
+
+    /**
+     * 未关闭就被垃圾回收、由回收释放引用的副本数
+     *
+     * @return long
+     */
+    public long getReclaimed() {
+        return reclaimed.get();
+    }
+
+    /**
+     * 共享的文件内容，按引用计数占用预算，首个请求持有一个引用，每个副本持有一个引用
+     */
+    private final class SharedObject {
+        private final Headers headers;
+        private final String bucket;
+        private final String region;
+        private final String object;
+        private final byte[] data;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private SharedObject(GetObjectResponse response, byte[] data) {
+            this.headers = response.headers();
+            this.bucket = response.bucket();
+            this.region = response.region();
+            this.object = response.object();
+            this.data = data;
+        }
+
+        /**
+         * 创建副本
+         *
+         * @return 副本，引用已全部释放且预算不足时为null
+         */
+        private GetObjectResponse newResponse() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) {
+                    //引用已全部释放后才到达的等待者重新占用预算
+                    if (!reserve(data.length)) {
+                        return null;
+                    }
+                    if (references.compareAndSet(0, 1)) {
+                        break;
+                    }
+                    //其他等待者已重新占用
+                    usedBytes.addAndGet(-data.length);
+                } else if (references.compareAndSet(count, count + 1)) {
+                    break;
+                }
+            }
+            SharedStream stream = new SharedStream();
+            streams.add(stream.reference);
+            return new GetObjectResponse(headers, bucket, region, object, stream);
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                usedBytes.addAndGet(-data.length);
+            }
+        }
+
+        /**
+         * 副本，关闭、读取完或被垃圾回收时释放引用
+         */
+        private final class SharedStream extends ByteArrayInputStream {
+            private final StreamReference reference;
+
+            private SharedStream() {
+                super(data);
+                this.reference = new StreamReference(this, SharedObject.this);
+            }
+
+            @Override
+            public synchronized int read() {
+                int b = super.read();
+                if (b < 0) {
+                    close();
+                }
+                return b;
+            }
+
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int n = super.read(b, off, len);
+                if (n < 0) {
+                    close();
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+                reference.release();
+            }
+        }
+    }
+
+    /**
+     * 副本的虚引用，副本关闭或被垃圾回收时释放共享内容的引用，只释放一次；不持有副本本身
+     */
+    private final class StreamReference extends PhantomReference<SharedObject.SharedStream> {
+        private final SharedObject shared;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private StreamReference(SharedObject.SharedStream stream, SharedObject shared) {
+            super(stream, unreachable);
+            this.shared = shared;
+        }
+
+        /**
+         * @return 本次调用释放了引用时为true
+         */
+        private boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            streams.remove(this);
+            shared.release();
+            return true;
+        }
+    }
+}
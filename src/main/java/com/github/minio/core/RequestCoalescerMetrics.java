@@ -0,0 +1,52 @@
+package com.github.minio.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 请求合并指标，命中率为joined除以全部请求数
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class RequestCoalescerMetrics implements MeterBinder {
+
+    private final RequestCoalescer coalescer;
+
+    public RequestCoalescerMetrics(RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "stat", "request", RequestCoalescer::getStatRequests);
+        counter(registry, "stat", "joined", RequestCoalescer::getStatJoined);
+        counter(registry, "get", "request", RequestCoalescer::getGetRequests);
+        counter(registry, "get", "joined", RequestCoalescer::getGetJoined);
+        counter(registry, "get", "bypassed", RequestCoalescer::getGetBypassed);
+        FunctionCounter.builder("minio.coalesce.buffer.reclaimed", coalescer, c -> (double) c.getReclaimed())
+                .description("未关闭就被垃圾回收、由回收释放预算的副本数")
+                .register(registry);
+        Gauge.builder("minio.coalesce.buffer.used", coalescer, c -> (double) c.getUsedBytes())
+                .baseUnit("bytes")
+                .description("共享缓冲区已使用的大小")
+                .register(registry);
+        Gauge.builder("minio.coalesce.buffer.capacity", coalescer, c -> (double) c.getMaxBytes())
+                .baseUnit("bytes")
+                .description("共享缓冲区内存预算")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String operation, String result,
+                         ToDoubleFunction<RequestCoalescer> count) {
+        FunctionCounter.builder("minio.coalesce.requests", coalescer, count)
+                .tag("operation", operation)
+                .tag("result", result)
+                .description("request：实际发起的请求，joined：合并到进行中请求，bypassed：不能共享而各自发起的请求")
+                .register(registry);
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.minio.core;
+
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Bucket;
+import io.minio.messages.InputSerialization;
+import io.minio.messages.Item;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多集群路由模板，按桶名称选择集群，未配置路由的桶使用默认集群
+ * <p>
+ * 不同集群之间不能服务端复制，跨集群的复制、移动直接失败
+ * <p>
+ * 路由只在通过本类或MinioOperations调用时生效，直接注入MinioTemplate得到的是默认集群的模板，不会按桶名称路由
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class RoutingMinioTemplate implements MinioOperations {
+
+    private final MinioTemplate defaultTemplate;
+
+    private final Map<String, MinioTemplate> clusters = new LinkedHashMap<>();
+
+    /**
+     * 桶名称与集群模板的对应关系
+     */
+    private final Map<String, MinioTemplate> routes = new HashMap<>();
+
+    public RoutingMinioTemplate(MinioTemplate defaultTemplate) {
+        this.defaultTemplate = defaultTemplate;
+    }
+
+    /**
+     * 添加集群
+     *
+     * @param name     集群名称
+     * @param template 集群模板
+     * @param buckets  路由到该集群的桶名称
+     */
+    public void addCluster(String name, MinioTemplate template, List<String> buckets) {
+        clusters.put(name, template);
+        for (String bucket : buckets) {
+            MinioTemplate previous = routes.put(bucket, template);
+            if (previous != null && previous != template) {
+                throw new IllegalArgumentException("minio bucket routed to more than one cluster: " + bucket);
+            }
+        }
+    }
+
+    /**
+     * 获取指定集群的模板
+     *
+     * @param name 集群名称
+     * @return 集群模板
+     */
+    public MinioTemplate getCluster(String name) {
+        MinioTemplate template = clusters.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("minio cluster not configured: " + name);
+        }
+        return template;
+    }
+
+    public Map<String, MinioTemplate> getClusters() {
+        return Collections.unmodifiableMap(clusters);
+    }
+
+    /**
+     * 按桶名称选择集群模板
+     *
+     * @param bucketName 桶名称
+     * @return 集群模板
+     */
+    public MinioTemplate route(String bucketName) {
+        return routes.getOrDefault(bucketName, defaultTemplate);
+    }
+
+    /**
+     * 源桶与目标桶必须在同一集群
+     */
+    private MinioTemplate route(String sourceBucket, String targetBucket) {
+        MinioTemplate template = route(sourceBucket);
+        if (template != route(targetBucket)) {
+            throw new IllegalArgumentException("server side copy across minio clusters is not supported: "
+                    + sourceBucket + " -> " + targetBucket);
+        }
+        return template;
+    }
+
+    /**
+     * 所有集群都就绪时才就绪
+     *
+     * @return boolean
+     */
+    @Override
+    public boolean isReady() {
+        return defaultTemplate.isReady() && clusters.values().stream().allMatch(MinioTemplate::isReady);
+    }
+
+    @Override
+    public void createBucket(String bucketName) throws Exception {
+        route(bucketName).createBucket(bucketName);
+    }
+
+    /**
+     * 列出默认集群的所有存储桶
+     *
+     * @return list
+     * @throws Exception ex
+     */
+    @Override
+    public List<Bucket> listBuckets() throws Exception {
+        return defaultTemplate.listBuckets();
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) throws Exception {
+        return route(bucketName).bucketExists(bucketName);
+    }
+
+    @Override
+    public void deleteBucket(String bucketName) throws Exception {
+        route(bucketName).deleteBucket(bucketName);
+    }
+
+    @Override
+    public String uploadFile(String bucketName, String objectName, InputStream ins, Long size, String contentType) throws Exception {
+        return route(bucketName).uploadFile(bucketName, objectName, ins, size, contentType);
+    }
+
+    /**
+     * 文件上传到默认集群的默认桶
+     */
+    @Override
+    public String uploadFile(String objectName, InputStream ins, Long size, String contentType) throws Exception {
+        return defaultTemplate.uploadFile(objectName, ins, size, contentType);
+    }
+
+    @Override
+    public String uploadFileWithPart(String bucketName, String objectName, InputStream stream, Long size, String contentType) throws Exception {
+        return route(bucketName).uploadFileWithPart(bucketName, objectName, stream, size, contentType);
+    }
+
+    @Override
+    public StatObjectResponse getFileInfo(String bucketName, String objectName) throws Exception {
+        return route(bucketName).getFileInfo(bucketName, objectName);
+    }
+
+    @Override
+    public List<Item> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) throws Exception {
+        return route(bucketName).getAllObjectsByPrefix(bucketName, prefix, recursive);
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName) throws Exception {
+        return route(bucketName).getObject(bucketName, objectName);
+    }
+
+    @Override
+    public void removeObject(String bucketName, String objectName) throws Exception {
+        route(bucketName).removeObject(bucketName, objectName);
+    }
+
+    @Override
+    public ObjectWriteResponse composeObject(String bucketName, List<String> chunkNames, String targetObjectName) throws Exception {
+        return route(bucketName).composeObject(bucketName, chunkNames, targetObjectName);
+    }
+
+    @Override
+    public ObjectWriteResponse copyObject(String sourceBucket, String sourceObject, String targetBucket,
+                                          String targetObject) throws Exception {
+        return route(sourceBucket, targetBucket).copyObject(sourceBucket, sourceObject, targetBucket, targetObject);
+    }
+
+    @Override
+    public void moveObject(String sourceBucket, String sourceObject, String targetBucket,
+                           String targetObject) throws Exception {
+        route(sourceBucket, targetBucket).moveObject(sourceBucket, sourceObject, targetBucket, targetObject);
+    }
+
+    @Override
+    public int copyPrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                          String targetPrefix) throws Exception {
+        return route(sourceBucket, targetBucket).copyPrefix(sourceBucket, sourcePrefix, targetBucket, targetPrefix);
+    }
+
+    @Override
+    public int movePrefix(String sourceBucket, String sourcePrefix, String targetBucket,
+                          String targetPrefix) throws Exception {
+        return route(sourceBucket, targetBucket).movePrefix(sourceBucket, sourcePrefix, targetBucket, targetPrefix);
+    }
+
+    @Override
+    public SelectResult selectObject(String bucketName, String objectName, String sql, SelectFormat inputFormat,
+                                     SelectFormat outputFormat) throws Exception {
+        return route(bucketName).selectObject(bucketName, objectName, sql, inputFormat, outputFormat);
+    }
+
+    @Override
+    public SelectResult selectObject(String bucketName, String objectName, String sql, InputSerialization input,
+                                     SelectFormat outputFormat) throws Exception {
+        return route(bucketName).selectObject(bucketName, objectName, sql, input, outputFormat);
+    }
+}
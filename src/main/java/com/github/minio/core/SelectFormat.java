@@ -0,0 +1,88 @@
+package com.github.minio.core;
+
+import io.minio.messages.CompressionType;
+import io.minio.messages.FileHeaderInfo;
+import io.minio.messages.InputSerialization;
+import io.minio.messages.JsonType;
+import io.minio.messages.OutputSerialization;
+import io.minio.messages.QuoteFields;
+
+/**
+ * S3 Select数据格式，记录以换行符分隔
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public enum SelectFormat {
+    /**
+     * 默认逗号分隔，首行为表头，可在sql中按列名引用；字段可用双引号包围，包围的字段中可包含换行符
+     */
+    CSV,
+    /**
+     * 每行一个json对象
+     */
+    JSON,
+    /**
+     * parquet列式存储，仅支持作为输入格式
+     */
+    PARQUET;
+
+    /**
+     * 记录分隔符
+     */
+    static final char RECORD_DELIMITER = '\n';
+
+    /**
+     * CSV引号，引号内的引号写为两个引号
+     */
+    static final char QUOTE = '"';
+
+    /**
+     * 转换为输入格式
+     *
+     * @return InputSerialization
+     */
+    public InputSerialization toInputSerialization() {
+        switch (this) {
+            case CSV:
+                return toInputSerialization(',', FileHeaderInfo.USE);
+            case JSON:
+                return new InputSerialization(CompressionType.NONE, JsonType.LINES);
+            default:
+                return new InputSerialization();
+        }
+    }
+
+    /**
+     * 转换为CSV输入格式
+     *
+     * @param fieldDelimiter 字段分隔符
+     * @param fileHeaderInfo 首行处理方式，USE为表头、IGNORE为跳过、NONE为数据
+     * @return InputSerialization
+     */
+    public InputSerialization toInputSerialization(char fieldDelimiter, FileHeaderInfo fileHeaderInfo) {
+        if (this != CSV) {
+            throw new IllegalArgumentException("field delimiter and file header only apply to csv: " + this);
+        }
+        //参数依次为压缩、允许引号内换行、注释符、字段分隔符、首行处理、引号、引号转义符、记录分隔符
+        return new InputSerialization(CompressionType.NONE, true, null, fieldDelimiter, fileHeaderInfo,
+                QUOTE, QUOTE, RECORD_DELIMITER);
+    }
+
+    /**
+     * 转换为输出格式
+     *
+     * @return OutputSerialization
+     */
+    public OutputSerialization toOutputSerialization() {
+        switch (this) {
+            case CSV:
+                //参数依次为字段分隔符、引号、引号转义符，与SelectResult的解析保持一致
+                return new OutputSerialization(',', QUOTE, QUOTE, QuoteFields.ASNEEDED, RECORD_DELIMITER);
+            case JSON:
+                return new OutputSerialization(RECORD_DELIMITER);
+            default:
+                throw new IllegalArgumentException("unsupported select output format: " + this);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.minio.core;
+
+import io.minio.SelectResponseStream;
+import io.minio.messages.Stats;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * S3 Select查询结果，逐条读取记录，事件流在读取时增量解码，使用完毕需关闭
+ * <p>
+ * 扫描与返回的字节数在记录全部读取完后才可用；CSV结果中双引号包围的字段可包含换行符，按引号配对识别记录边界
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class SelectResult implements Iterator<String>, Closeable {
+
+    private final SelectResponseStream stream;
+
+    private final BufferedReader reader;
+
+    private final boolean csv;
+
+    private String next;
+
+    private boolean finished;
+
+    public SelectResult(SelectResponseStream stream, SelectFormat outputFormat) {
+        this.stream = stream;
+        this.reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        this.csv = outputFormat == SelectFormat.CSV;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = csv ? readCsvRecord() : reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    /**
+     * 下一条记录，CSV为一条记录的原始文本，JSON为一个对象
+     *
+     * @return str
+     */
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String record = next;
+        next = null;
+        return record;
+    }
+
+    /**
+     * 读取一条CSV记录，引号内的换行符属于字段内容，转义的双引号""成对出现不影响配对
+     */
+    private String readCsvRecord() throws IOException {
+        StringBuilder record = new StringBuilder();
+        boolean quoted = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == SelectFormat.QUOTE) {
+                quoted = !quoted;
+            } else if (c == SelectFormat.RECORD_DELIMITER && !quoted) {
+                return stripCarriageReturn(record);
+            }
+            record.append((char) c);
+        }
+        return record.length() == 0 ? null : stripCarriageReturn(record);
+    }
+
+    private static String stripCarriageReturn(StringBuilder record) {
+        int length = record.length();
+        return length > 0 && record.charAt(length - 1) == '\r'
+                ? record.substring(0, length - 1) : record.toString();
+    }
+
+    /**
+     * 查询统计信息，记录未读取完时为null
+     *
+     * @return stats
+     */
+    public Stats getStats() {
+        return stream.stats();
+    }
+
+    /**
+     * 服务端扫描的字节数
+     *
+     * @return long
+     */
+    public long getBytesScanned() {
+        Stats stats = stream.stats();
+        return stats == null ? 0 : stats.bytesScanned();
+    }
+
+    /**
+     * 返回给客户端的字节数
+     *
+     * @return long
+     */
+    public long getBytesReturned() {
+        Stats stats = stream.stats();
+        return stats == null ? 0 : stats.bytesReturned();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
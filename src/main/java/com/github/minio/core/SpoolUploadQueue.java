@@ -0,0 +1,657 @@
+package com.github.minio.core;
+
+import io.minio.ObjectWriteResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于本地落盘目录的异步上传队列，上传先写入本地文件后立即返回，后台线程并行上传到minio
+ * <p>
+ * 每个上传写入一个独立的文件，先写临时文件，按配置刷盘后原子重命名，上传成功后删除；
+ * 上传失败按指数退避重试，超过重试次数移入failed目录；重启时重新上传目录中未完成的文件
+ * <p>
+ * 同一个文件同一时刻只有一个上传在进行；写入同一个文件时未开始上传的旧版本直接丢弃，旧版本的future随新版本结束，
+ * 正在上传的旧版本结束后才上传新版本，保证最后写入的版本最后上传
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class SpoolUploadQueue implements Closeable {
+
+    private static final Log log = LogFactory.getLog(SpoolUploadQueue.class);
+
+    private static final int MAGIC = 0x4d535031;
+
+    private static final String SUFFIX = ".spool";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String FAILED_DIRECTORY = "failed";
+
+    /**
+     * 重试间隔最多退避到初始间隔的倍数
+     */
+    private static final int MAX_BACKOFF = 64;
+
+    /**
+     * 按文件名开头的序号排序，序号相同时（旧版本以写入时间开头的文件）按文件名排序
+     */
+    private static final Comparator<String> ORDER = Comparator.comparingLong(SpoolUploadQueue::sequenceOf)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final Path directory;
+
+    private final boolean fsync;
+
+    private final int workers;
+
+    /**
+     * 重试间隔，单位：毫秒
+     */
+    private final long retryInterval;
+
+    /**
+     * 最大重试次数，小于等于0时一直重试
+     */
+    private final int maxRetries;
+
+    /**
+     * 待上传的文件，按写入序号排序
+     */
+    private final ConcurrentSkipListMap<String, Entry> pending = new ConcurrentSkipListMap<>(ORDER);
+
+    private final Map<String, CompletableFuture<ObjectWriteResponse>> futures = new ConcurrentHashMap<>();
+
+    private final DelayQueue<Entry> queue = new DelayQueue<>();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private final AtomicLong drainedCount = new AtomicLong();
+
+    private final AtomicLong drainedBytes = new AtomicLong();
+
+    private final AtomicLong retryCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong supersededCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * 写入序号，单调递增，写在文件名开头随文件落盘，重启时从目录中已有的文件名恢复
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 落盘目录占用的字节数，包含正在写入的文件
+     */
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * 每个文件最新的待上传版本，key为桶名称/文件名称，以下三个map由该map加锁保护
+     */
+    private final Map<String, Entry> latest = new HashMap<>();
+
+    /**
+     * 正在上传的版本
+     */
+    private final Map<String, Entry> uploading = new HashMap<>();
+
+    /**
+     * 旧版本正在上传时取出的新版本，旧版本结束后重新加入队列
+     */
+    private final Map<String, Entry> parked = new HashMap<>();
+
+    /**
+     * 落盘目录的容量，单位：字节，小于等于0时不限制
+     */
+    private long maxBytes;
+
+    private volatile boolean closed;
+
+    private ExecutorService executor;
+
+    /**
+     * @param directory     落盘目录
+     * @param fsync         写入后是否刷盘，关闭时进程崩溃不丢数据，但机器掉电可能丢失最近的上传
+     * @param workers       上传线程数
+     * @param retryInterval 重试间隔，单位：毫秒
+     * @param maxRetries    最大重试次数，小于等于0时一直重试
+     */
+    public SpoolUploadQueue(Path directory, boolean fsync, int workers, long retryInterval, int maxRetries) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.workers = Math.max(1, workers);
+        this.retryInterval = Math.max(1, retryInterval);
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * 设置落盘目录的容量，超过后写入失败，需在启动前设置
+     *
+     * @param maxBytes 容量，单位：字节，小于等于0时不限制
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 启动上传线程并恢复目录中未完成的上传，重复调用时忽略
+     *
+     * @param uploader 上传到minio的方法
+     * @throws IOException 落盘目录不可用
+     */
+    public void start(Uploader uploader) throws IOException {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Files.createDirectories(directory.resolve(FAILED_DIRECTORY));
+        recover();
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "minio-spool-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.execute(() -> drain(uploader));
+        }
+    }
+
+    /**
+     * 写入落盘目录，返回时文件已落盘
+     *
+     * @param bucketName  桶名称
+     * @param objectName  文件名称
+     * @param stream      文件流
+     * @param size        文件大小，未知时为null或-1
+     * @param contentType MIME类型
+     * @return 上传到minio完成时结束，被同一个文件的新版本取代时随新版本结束，进程重启后不再回调
+     * @throws IOException 写入失败或流长度与文件大小不一致
+     * @throws IllegalStateException 落盘目录容量不足
+     */
+    public CompletableFuture<ObjectWriteResponse> enqueue(String bucketName, String objectName, InputStream stream,
+                                                          Long size, String contentType) throws IOException {
+        if (!started.get()) {
+            throw new IllegalStateException("minio spool upload queue not started");
+        }
+        //大小已知时先检查容量，未知时边写边检查
+        if (size != null && size > 0 && maxBytes > 0 && usedBytes.get() + size > maxBytes) {
+            throw full();
+        }
+        //文件名以写入序号开头，不受系统时间回拨影响，按序号排序即按写入顺序
+        String name = String.format("%019d-%s", sequence.incrementAndGet(), UUID.randomUUID());
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        Path file = directory.resolve(name + SUFFIX);
+        long payloadOffset;
+        long length;
+        long reserved = 0;
+        try (FileOutputStream fos = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeUTF(bucketName);
+            out.writeUTF(objectName);
+            out.writeUTF(contentType == null ? "" : contentType);
+            payloadOffset = out.size();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) >= 0) {
+                reserved += n;
+                if (usedBytes.addAndGet(n) > maxBytes && maxBytes > 0) {
+                    throw full();
+                }
+                out.write(buffer, 0, n);
+            }
+            out.flush();
+            length = fos.getChannel().position() - payloadOffset;
+            if (size != null && size >= 0 && length != size) {
+                throw new IOException("stream length " + length + " does not match size " + size);
+            }
+            if (fsync) {
+                fos.getFD().sync();
+            }
+        } catch (IOException | RuntimeException e) {
+            usedBytes.addAndGet(-reserved);
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        //预留的容量转入待上传文件
+        usedBytes.addAndGet(-reserved);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        if (fsync) {
+            syncDirectory();
+        }
+        CompletableFuture<ObjectWriteResponse> future = new CompletableFuture<>();
+        futures.put(name, future);
+        add(new Entry(name, file, bucketName, objectName, contentType, payloadOffset, length,
+                System.currentTimeMillis()));
+        return future;
+    }
+
+    private IllegalStateException full() {
+        rejectedCount.incrementAndGet();
+        return new IllegalStateException("minio spool directory full, max bytes: " + maxBytes);
+    }
+
+    /**
+     * 删除未写完的临时文件，按写入顺序重新加入已落盘的文件，同一个文件只保留最后写入的版本；
+     * 写入序号从已有文件中最大的序号继续，新写入的文件排在恢复的文件之后
+     */
+    private void recover() throws IOException {
+        TreeMap<String, Path> spooled = new TreeMap<>(ORDER);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (fileName.endsWith(SUFFIX)) {
+                    String name = fileName.substring(0, fileName.length() - SUFFIX.length());
+                    spooled.put(name, file);
+                    sequence.accumulateAndGet(sequenceOf(name), Math::max);
+                }
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.resolve(FAILED_DIRECTORY))) {
+            for (Path file : files) {
+                sequence.accumulateAndGet(sequenceOf(file.getFileName().toString()), Math::max);
+            }
+        }
+        for (Map.Entry<String, Path> file : spooled.entrySet()) {
+            try {
+                add(read(file.getValue(), file.getKey()));
+            } catch (IOException e) {
+                log.warn("corrupted minio spool file moved to failed directory: " + file.getValue(), e);
+                moveToFailed(file.getValue());
+            }
+        }
+        if (!pending.isEmpty() && log.isInfoEnabled()) {
+            log.info("recovered " + pending.size() + " minio spool uploads from " + directory);
+        }
+    }
+
+    private static Entry read(Path file, String name) throws IOException {
+        try (FileInputStream fis = new FileInputStream(file.toFile())) {
+            //不使用缓冲流，读取文件头后的位置即为文件内容的起始位置
+            DataInputStream in = new DataInputStream(fis);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a minio spool file");
+            }
+            String bucketName = in.readUTF();
+            String objectName = in.readUTF();
+            String contentType = in.readUTF();
+            FileChannel channel = fis.getChannel();
+            long payloadOffset = channel.position();
+            return new Entry(name, file, bucketName, objectName, contentType.isEmpty() ? null : contentType,
+                    payloadOffset, channel.size() - payloadOffset, Files.getLastModifiedTime(file).toMillis());
+        }
+    }
+
+    /**
+     * 文件名开头的写入序号，旧版本的文件以写入时间开头，同样单调递增
+     *
+     * @param name 文件名
+     * @return 序号，无法解析时为0
+     */
+    private static long sequenceOf(String name) {
+        int end = name.indexOf('-');
+        try {
+            return Long.parseLong(end < 0 ? name : name.substring(0, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void add(Entry entry) {
+        pending.put(entry.name, entry);
+        pendingBytes.addAndGet(entry.length);
+        usedBytes.addAndGet(entry.length);
+        Entry previous;
+        synchronized (latest) {
+            previous = latest.put(entry.key, entry);
+            //正在上传的旧版本结束后再丢弃
+            if (previous != null && uploading.get(entry.key) == previous) {
+                previous = null;
+            }
+        }
+        if (previous != null) {
+            queue.remove(previous);
+            discard(previous, entry);
+        }
+        queue.add(entry);
+    }
+
+    /**
+     * 丢弃被新版本取代的旧版本，旧版本的future随新版本结束
+     */
+    private void discard(Entry entry, Entry newer) {
+        try {
+            Files.deleteIfExists(entry.file);
+        } catch (IOException e) {
+            log.warn("failed to delete superseded minio spool file: " + entry.file, e);
+        }
+        remove(entry);
+        supersededCount.incrementAndGet();
+        CompletableFuture<ObjectWriteResponse> future = futures.remove(entry.name);
+        CompletableFuture<ObjectWriteResponse> newerFuture = futures.get(newer.name);
+        if (future != null && newerFuture != null) {
+            newerFuture.whenComplete((response, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(response);
+                }
+            });
+        }
+    }
+
+    /**
+     * 开始上传，已被取代时返回false，同一个文件的旧版本正在上传时暂存，旧版本结束后重新加入队列
+     */
+    private boolean begin(Entry entry) {
+        synchronized (latest) {
+            if (latest.get(entry.key) != entry) {
+                return false;
+            }
+            if (uploading.containsKey(entry.key)) {
+                parked.put(entry.key, entry);
+                return false;
+            }
+            uploading.put(entry.key, entry);
+            return true;
+        }
+    }
+
+    /**
+     * 结束上传，返回被取代该版本的新版本，未被取代时返回null
+     *
+     * @param done 是否不再上传，上传成功或移入failed目录
+     */
+    private Entry end(Entry entry, boolean done) {
+        Entry newer;
+        Entry next;
+        synchronized (latest) {
+            uploading.remove(entry.key);
+            next = parked.remove(entry.key);
+            newer = latest.get(entry.key);
+            if (newer == entry) {
+                newer = null;
+                if (done) {
+                    latest.remove(entry.key);
+                }
+            }
+        }
+        if (next != null) {
+            queue.add(next);
+        }
+        return newer;
+    }
+
+    private void drain(Uploader uploader) {
+        while (!closed) {
+            Entry entry;
+            try {
+                entry = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (entry == null || !begin(entry)) {
+                continue;
+            }
+            ObjectWriteResponse response;
+            try (FileInputStream fis = new FileInputStream(entry.file.toFile())) {
+                fis.getChannel().position(entry.payloadOffset);
+                response = uploader.upload(entry.bucketName, entry.objectName,
+                        new BufferedInputStream(fis, 64 * 1024), entry.length, entry.contentType);
+            } catch (Exception e) {
+                if (closed) {
+                    //关闭时中断的上传保留在目录中，重启后继续
+                    return;
+                }
+                Entry newer = end(entry, false);
+                if (newer != null) {
+                    discard(entry, newer);
+                } else {
+                    retry(entry, e);
+                }
+                continue;
+            }
+            end(entry, true);
+            try {
+                Files.deleteIfExists(entry.file);
+            } catch (IOException e) {
+                log.warn("failed to delete uploaded minio spool file: " + entry.file, e);
+            }
+            remove(entry);
+            drainedCount.incrementAndGet();
+            drainedBytes.addAndGet(entry.length);
+            CompletableFuture<ObjectWriteResponse> future = futures.remove(entry.name);
+            if (future != null) {
+                future.complete(response);
+            }
+        }
+    }
+
+    private void retry(Entry entry, Exception e) {
+        entry.attempts++;
+        if (maxRetries > 0 && entry.attempts > maxRetries) {
+            log.error("minio spool upload failed after " + maxRetries + " retries, moved to failed directory: "
+                    + entry.bucketName + "/" + entry.objectName, e);
+            moveToFailed(entry.file);
+            remove(entry);
+            synchronized (latest) {
+                latest.remove(entry.key, entry);
+            }
+            failedCount.incrementAndGet();
+            CompletableFuture<ObjectWriteResponse> future = futures.remove(entry.name);
+            if (future != null) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+        retryCount.incrementAndGet();
+        long backoff = retryInterval * Math.min(MAX_BACKOFF, 1L << Math.min(30, entry.attempts - 1));
+        if (log.isWarnEnabled()) {
+            log.warn("minio spool upload failed, retry in " + backoff + "ms: "
+                    + entry.bucketName + "/" + entry.objectName + ", " + e);
+        }
+        entry.nextAttempt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        queue.add(entry);
+    }
+
+    private void remove(Entry entry) {
+        pending.remove(entry.name);
+        pendingBytes.addAndGet(-entry.length);
+        usedBytes.addAndGet(-entry.length);
+    }
+
+    private void moveToFailed(Path file) {
+        try {
+            Files.move(file, directory.resolve(FAILED_DIRECTORY).resolve(file.getFileName()),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("failed to move minio spool file to failed directory: " + file, e);
+        }
+    }
+
+    /**
+     * 刷新目录项，保证重命名落盘，不支持的平台忽略
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //部分平台不能打开目录
+        }
+    }
+
+    /**
+     * 停止上传线程，未完成的上传保留在目录中，重启后继续
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 待上传的文件数，包含正在上传与等待重试的文件
+     *
+     * @return int
+     */
+    public int getDepth() {
+        return pending.size();
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * 最早的待上传文件已等待的时间
+     *
+     * @return 等待时间，单位：毫秒，没有待上传的文件时为0
+     */
+    public long getOldestAge() {
+        Map.Entry<String, Entry> oldest = pending.firstEntry();
+        if (oldest == null) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - oldest.getValue().created);
+    }
+
+    public long getDrainedCount() {
+        return drainedCount.get();
+    }
+
+    public long getDrainedBytes() {
+        return drainedBytes.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * 被同一个文件的新版本取代而未上传的文件数
+     *
+     * @return long
+     */
+    public long getSupersededCount() {
+        return supersededCount.get();
+    }
+
+    /**
+     * 因落盘目录容量不足而失败的写入数
+     *
+     * @return long
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 上传到minio的方法
+     */
+    @FunctionalInterface
+    public interface Uploader {
+        /**
+         * 上传文件
+         *
+         * @param bucketName  桶名称
+         * @param objectName  文件名称
+         * @param stream      文件流
+         * @param size        文件大小
+         * @param contentType MIME类型
+         * @return obj
+         * @throws Exception 异常
+         */
+        ObjectWriteResponse upload(String bucketName, String objectName, InputStream stream, Long size,
+                                   String contentType) throws Exception;
+    }
+
+    /**
+     * 已落盘的上传
+     */
+    private static final class Entry implements Delayed {
+        private final String name;
+        private final String key;
+        private final Path file;
+        private final String bucketName;
+        private final String objectName;
+        private final String contentType;
+        private final long payloadOffset;
+        private final long length;
+        /**
+         * 写入时间，恢复的文件为文件修改时间，只用于统计
+         */
+        private final long created;
+        private int attempts;
+        private volatile long nextAttempt = System.nanoTime();
+
+        private Entry(String name, Path file, String bucketName, String objectName, String contentType,
+                      long payloadOffset, long length, long created) {
+            this.name = name;
+            this.key = bucketName + "/" + objectName;
+            this.file = file;
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.contentType = contentType;
+            this.payloadOffset = payloadOffset;
+            this.length = length;
+            this.created = created;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextAttempt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            Entry other = (Entry) o;
+            int result = Long.compare(nextAttempt - other.nextAttempt, 0);
+            return result != 0 ? result : ORDER.compare(name, other.name);
+        }
+    }
+}
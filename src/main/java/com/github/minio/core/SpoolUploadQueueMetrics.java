@@ -0,0 +1,57 @@
+package com.github.minio.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步上传队列指标
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class SpoolUploadQueueMetrics implements MeterBinder {
+
+    private final SpoolUploadQueue queue;
+
+    public SpoolUploadQueueMetrics(SpoolUploadQueue queue) {
+        this.queue = queue;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("minio.spool.depth", queue, SpoolUploadQueue::getDepth)
+                .description("待上传的文件数")
+                .register(registry);
+        Gauge.builder("minio.spool.pending", queue, q -> (double) q.getPendingBytes())
+                .baseUnit("bytes")
+                .description("待上传的文件大小")
+                .register(registry);
+        TimeGauge.builder("minio.spool.oldest.age", queue, TimeUnit.MILLISECONDS, q -> (double) q.getOldestAge())
+                .description("最早的待上传文件已等待的时间")
+                .register(registry);
+        FunctionCounter.builder("minio.spool.drained", queue, q -> (double) q.getDrainedCount())
+                .description("已上传的文件数")
+                .register(registry);
+        FunctionCounter.builder("minio.spool.drained.bytes", queue, q -> (double) q.getDrainedBytes())
+                .baseUnit("bytes")
+                .description("已上传的文件大小")
+                .register(registry);
+        FunctionCounter.builder("minio.spool.retries", queue, q -> (double) q.getRetryCount())
+                .description("上传失败后的重试次数")
+                .register(registry);
+        FunctionCounter.builder("minio.spool.failed", queue, q -> (double) q.getFailedCount())
+                .description("超过重试次数而移入failed目录的文件数")
+                .register(registry);
+        FunctionCounter.builder("minio.spool.superseded", queue, q -> (double) q.getSupersededCount())
+                .description("被同一文件的新版本取代而未上传的文件数")
+                .register(registry);
+        FunctionCounter.builder("minio.spool.rejected", queue, q -> (double) q.getRejectedCount())
+                .description("因落盘目录容量不足而失败的写入数")
+                .register(registry);
+    }
+}
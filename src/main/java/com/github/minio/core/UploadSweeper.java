@@ -0,0 +1,850 @@
+package com.github.minio.core;
+
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.RateLimiter;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 清理未完成的分片上传与过期的分片文件
+ * <p>
+ * 分页查询桶中发起时间超过期限的分片上传并取消，查询分片文件前缀下修改时间超过期限的文件并批量删除；
+ * 取消与删除请求并行执行并限制速率；每个桶通过桶中的锁文件协调，同时只有一个实例清理，
+ * 锁文件的元数据记录到期时间，超过到期时间未续期时可被其他实例接管
+ * <p>
+ * 锁依赖服务端的条件写入，首次清理桶时探测服务端是否支持，不支持时跳过该桶，
+ * 除非通过{@link #setAllowUnconditionalLock(boolean)}显式允许退化为写入后确认
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class UploadSweeper implements Closeable {
+
+    private static final Log log = LogFactory.getLog(UploadSweeper.class);
+
+    /**
+     * 锁文件记录持有者的元数据
+     */
+    private static final String OWNER_HEADER = "x-amz-meta-sweeper-owner";
+
+    /**
+     * 锁文件记录到期时间的元数据，毫秒时间戳
+     */
+    private static final String EXPIRES_HEADER = "x-amz-meta-sweeper-expires";
+
+    /**
+     * 探测条件写入时If-Match使用的不存在的etag
+     */
+    private static final String PROBE_ETAG = "\"00000000000000000000000000000000\"";
+
+    /**
+     * 分片上传每页数量与批量删除的最大数量
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final Supplier<ExtendedMinioAsyncClient> client;
+
+    private final List<String> buckets;
+
+    private final List<String> chunkPrefixes;
+
+    /**
+     * 清理期限，单位：毫秒
+     */
+    private final long maxAge;
+
+    private final int concurrency;
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * 当前实例的锁持有者标识
+     */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    /**
+     * 当前实例的条件写入探测文件名称后缀，多个实例同时探测时互不干扰
+     */
+    private final String probeId = UUID.randomUUID().toString();
+
+    private final ExecutorService executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong sweeps = new AtomicLong();
+
+    private final AtomicLong skippedBuckets = new AtomicLong();
+
+    private final AtomicLong abortedUploads = new AtomicLong();
+
+    private final AtomicLong deletedObjects = new AtomicLong();
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * 各桶是否支持条件写入的探测结果
+     */
+    private final Map<String, Boolean> conditionalWrites = new ConcurrentHashMap<>();
+
+    private String lockObject = ".minio-sweeper.lock";
+
+    /**
+     * 锁租期，单位：毫秒
+     */
+    private long lockTtl = TimeUnit.MINUTES.toMillis(10);
+
+    private int batchSize = MAX_PAGE_SIZE;
+
+    private boolean allowUnconditionalLock;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile SweepReport lastReport;
+
+    private volatile boolean closed;
+
+    /**
+     * @param client            异步客户端提供者，首次清理时才创建
+     * @param buckets           清理的桶
+     * @param chunkPrefixes     分片文件前缀，为空时只清理分片上传，前缀不能为空白或桶根目录
+     * @param maxAge            清理期限，发起或修改时间超过该时长的才清理，单位：毫秒
+     * @param concurrency       并行的取消与删除请求数
+     * @param requestsPerSecond 取消与删除请求的速率上限，每秒请求数，需大于0
+     */
+    public UploadSweeper(Supplier<MinioAsyncClient> client, List<String> buckets, List<String> chunkPrefixes,
+                         long maxAge, int concurrency, double requestsPerSecond) {
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("minio sweeper rate limit must be greater than 0: " + requestsPerSecond);
+        }
+        this.client = Suppliers.memoize(() -> new ExtendedMinioAsyncClient(client.get()));
+        this.buckets = new ArrayList<>(buckets);
+        for (String prefix : chunkPrefixes) {
+            //空白或只有斜杠的前缀会清理整个桶
+            if (prefix == null || prefix.replace("/", "").trim().isEmpty()) {
+                throw new IllegalArgumentException("minio sweeper chunk prefix must not be blank or the bucket root: '"
+                        + prefix + "'");
+            }
+        }
+        this.chunkPrefixes = new ArrayList<>(chunkPrefixes);
+        this.maxAge = maxAge;
+        this.concurrency = Math.max(1, concurrency);
+        this.rateLimiter = RateLimiter.create(requestsPerSecond);
+        AtomicInteger index = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.concurrency, r -> {
+            Thread thread = new Thread(r, "minio-sweeper-worker-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 设置锁文件名称，锁文件不会被清理
+     *
+     * @param lockObject 锁文件名称
+     */
+    public void setLockObject(String lockObject) {
+        this.lockObject = lockObject;
+    }
+
+    /**
+     * 设置锁租期，需大于清理一页的耗时，清理过程中每过半个租期续期一次
+     *
+     * @param lockTtl 锁租期，单位：毫秒
+     */
+    public void setLockTtl(long lockTtl) {
+        this.lockTtl = lockTtl;
+    }
+
+    /**
+     * 设置每次批量删除的文件数，最多1000
+     *
+     * @param batchSize 文件数
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, Math.min(MAX_PAGE_SIZE, batchSize));
+    }
+
+    /**
+     * 设置服务端不支持条件写入时是否仍然清理，允许时由写入后的确认兜底，
+     * 同时获取锁的实例中只有最后写入者继续，但已确认的持有者仍可能被覆盖，多个实例可能同时清理同一个桶
+     *
+     * @param allowUnconditionalLock 是否允许，默认不允许，不支持条件写入的桶被跳过
+     */
+    public void setAllowUnconditionalLock(boolean allowUnconditionalLock) {
+        this.allowUnconditionalLock = allowUnconditionalLock;
+    }
+
+    /**
+     * 按固定间隔定时清理，重复调用时忽略
+     *
+     * @param initialDelay 首次清理的延迟，单位：毫秒
+     * @param interval     上次清理结束到下次开始的间隔，单位：毫秒
+     */
+    public synchronized void start(long initialDelay, long interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "minio-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                SweepReport report = sweep();
+                if (report != null && report.getReclaimedBytes() + report.getErrors() > 0) {
+                    log.info("minio sweep finished: " + report);
+                }
+            } catch (RuntimeException e) {
+                log.warn("minio sweep failed", e);
+            }
+        }, initialDelay, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即清理一次，在当前线程中执行，单个桶或单个请求失败时记录错误后继续
+     *
+     * @return 清理结果，已有清理在进行中时为null
+     */
+    public SweepReport sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            SweepReport report = new SweepReport();
+            long start = System.currentTimeMillis();
+            long cutoff = start - maxAge;
+            for (String bucket : buckets) {
+                if (closed) {
+                    break;
+                }
+                Lease lease = acquire(bucket, report);
+                if (lease == null) {
+                    report.skippedBuckets.incrementAndGet();
+                    continue;
+                }
+                try {
+                    sweepUploads(lease, cutoff, report);
+                    for (String prefix : chunkPrefixes) {
+                        if (lease.lost) {
+                            break;
+                        }
+                        sweepChunks(lease, prefix, cutoff, report);
+                    }
+                } catch (Exception e) {
+                    report.errors.incrementAndGet();
+                    log.warn("minio sweep of bucket " + bucket + " failed", e);
+                } finally {
+                    release(lease);
+                }
+            }
+            report.elapsed = System.currentTimeMillis() - start;
+            sweeps.incrementAndGet();
+            skippedBuckets.addAndGet(report.getSkippedBuckets());
+            abortedUploads.addAndGet(report.getAbortedUploads());
+            deletedObjects.addAndGet(report.getDeletedObjects());
+            reclaimedBytes.addAndGet(report.getReclaimedBytes());
+            errors.addAndGet(report.getErrors());
+            lastReport = report;
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 取消发起时间早于期限的分片上传
+     */
+    private void sweepUploads(Lease lease, long cutoff, SweepReport report) throws Exception {
+        Semaphore permits = new Semaphore(concurrency);
+        String keyMarker = null;
+        String uploadIdMarker = null;
+        try {
+            ListMultipartUploadsResult result;
+            do {
+                result = MinioFutures.await(client.get().listMultipartUploads(
+                        lease.bucket, keyMarker, uploadIdMarker, MAX_PAGE_SIZE)).result();
+                for (Upload upload : result.uploads()) {
+                    if (upload.initiated() != null && upload.initiated().toInstant().toEpochMilli() < cutoff) {
+                        submit(permits, () -> abort(lease, upload, report), report);
+                    }
+                }
+                keyMarker = result.nextKeyMarker();
+                uploadIdMarker = result.nextUploadIdMarker();
+            } while (result.isTruncated() && !closed && renew(lease));
+        } finally {
+            //等待本桶提交的请求全部完成
+            awaitRequests(permits);
+        }
+    }
+
+    private void abort(Lease lease, Upload upload, SweepReport report) throws Exception {
+        String bucket = lease.bucket;
+        //取消后无法再查询分片大小，先统计
+        long bytes = 0;
+        Integer marker = null;
+        ListPartsResult parts;
+        do {
+            rateLimiter.acquire();
+            //排队期间锁可能已失去，每个请求前检查
+            if (lease.lost) {
+                return;
+            }
+            parts = MinioFutures.await(client.get().listParts(bucket, upload.objectName(), upload.uploadId(), marker))
+                    .result();
+            for (Part part : parts.partList()) {
+                bytes += part.partSize();
+            }
+            marker = parts.nextPartNumberMarker();
+        } while (parts.isTruncated());
+        rateLimiter.acquire();
+        if (lease.lost) {
+            return;
+        }
+        try {
+            MinioFutures.await(client.get().abortMultipartUpload(bucket, upload.objectName(), upload.uploadId()));
+        } catch (ErrorResponseException e) {
+            //期间已完成或被取消
+            if ("NoSuchUpload".equals(e.errorResponse().code())) {
+                return;
+            }
+            throw e;
+        }
+        report.abortedUploads.incrementAndGet();
+        report.uploadBytes.addAndGet(bytes);
+    }
+
+    /**
+     * 批量删除前缀下修改时间早于期限的文件
+     */
+    private void sweepChunks(Lease lease, String prefix, long cutoff, SweepReport report) throws Exception {
+        Semaphore permits = new Semaphore(concurrency);
+        try {
+            List<Item> batch = new ArrayList<>(batchSize);
+            Iterable<Result<Item>> items = client.get().listObjects(ListObjectsArgs.builder()
+                    .bucket(lease.bucket)
+                    .prefix(prefix)
+                    .recursive(true)
+                    .maxKeys(MAX_PAGE_SIZE)
+                    .build());
+            for (Result<Item> result : items) {
+                if (closed) {
+                    return;
+                }
+                Item item = result.get();
+                if (item.isDir() || isLock(item.objectName())
+                        || item.lastModified().toInstant().toEpochMilli() >= cutoff) {
+                    continue;
+                }
+                batch.add(item);
+                if (batch.size() == batchSize) {
+                    List<Item> objects = batch;
+                    submit(permits, () -> delete(lease, objects, report), report);
+                    batch = new ArrayList<>(batchSize);
+                    if (!renew(lease)) {
+                        return;
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                List<Item> objects = batch;
+                submit(permits, () -> delete(lease, objects, report), report);
+            }
+        } finally {
+            awaitRequests(permits);
+        }
+    }
+
+    private void delete(Lease lease, List<Item> items, SweepReport report) throws Exception {
+        String bucket = lease.bucket;
+        List<DeleteObject> objects = new ArrayList<>(items.size());
+        for (Item item : items) {
+            objects.add(new DeleteObject(item.objectName()));
+        }
+        rateLimiter.acquire();
+        //排队期间锁可能已失去，其他实例已开始清理时不再删除
+        if (lease.lost) {
+            return;
+        }
+        Set<String> failed = new HashSet<>();
+        for (Result<DeleteError> result : client.get().removeObjects(RemoveObjectsArgs.builder()
+                .bucket(bucket)
+                .objects(objects)
+                .build())) {
+            DeleteError error = result.get();
+            failed.add(error.objectName());
+            log.warn("minio sweeper failed to delete " + bucket + "/" + error.objectName() + ": " + error.message());
+        }
+        for (Item item : items) {
+            if (!failed.contains(item.objectName())) {
+                report.deletedObjects.incrementAndGet();
+                report.objectBytes.addAndGet(item.size());
+            }
+        }
+        report.errors.addAndGet(failed.size());
+    }
+
+    private void submit(Semaphore permits, Task task, SweepReport report) throws InterruptedException {
+        permits.acquire();
+        try {
+            executor.execute(new Request(permits, task, report));
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 等待提交的请求全部结束，关闭时被中断则不再等待
+     */
+    private void awaitRequests(Semaphore permits) {
+        try {
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 锁文件与所有实例的探测文件都不清理
+     */
+    private boolean isLock(String objectName) {
+        return objectName.equals(lockObject) || objectName.startsWith(lockObject + ".probe.");
+    }
+
+    private String probeObject() {
+        return lockObject + ".probe." + probeId;
+    }
+
+    /**
+     * 获取桶的锁，锁文件不存在或已过元数据中的到期时间时写入当前实例标识，写入后再次读取确认
+     * <p>
+     * 写入带If-None-Match或If-Match条件，并发获取只有一个成功；服务端不支持条件写入且未允许退化时不获取
+     *
+     * @return 租约，锁被其他实例持有或服务端不支持条件写入时为null
+     */
+    private Lease acquire(String bucket, SweepReport report) {
+        try {
+            if (!conditionalWrites.computeIfAbsent(bucket, this::probe) && !allowUnconditionalLock) {
+                log.warn("minio sweeper skipped bucket " + bucket + ", conditional writes are not supported");
+                return null;
+            }
+            StatObjectResponse stat = statLock(bucket);
+            String condition;
+            if (stat == null) {
+                condition = "If-None-Match";
+            } else {
+                if (!owner.equals(stat.headers().get(OWNER_HEADER))
+                        && System.currentTimeMillis() < expiresAt(stat)) {
+                    return null;
+                }
+                condition = "If-Match";
+            }
+            Lease lease = new Lease(bucket, stat == null ? "*" : stat.etag());
+            return write(lease, condition) ? lease : null;
+        } catch (Exception e) {
+            report.errors.incrementAndGet();
+            log.warn("minio sweeper failed to acquire lock in bucket " + bucket, e);
+            return null;
+        }
+    }
+
+    /**
+     * 超过半个租期时续期，续期失败时停止清理该桶
+     *
+     * @return 是否仍持有锁
+     */
+    private boolean renew(Lease lease) {
+        if (lease.lost) {
+            return false;
+        }
+        if (System.currentTimeMillis() - lease.renewedAt < lockTtl / 2) {
+            return true;
+        }
+        try {
+            if (write(lease, "If-Match")) {
+                return true;
+            }
+        } catch (Exception e) {
+            log.warn("minio sweeper failed to renew lock in bucket " + lease.bucket, e);
+        }
+        log.warn("minio sweeper lost lock in bucket " + lease.bucket + ", stop sweeping");
+        lease.lost = true;
+        return false;
+    }
+
+    /**
+     * 按租约的etag条件删除锁文件，锁已被其他实例接管时不删除
+     */
+    private void release(Lease lease) {
+        if (lease.lost) {
+            return;
+        }
+        try {
+            StatObjectResponse stat = statLock(lease.bucket);
+            if (stat != null && owner.equals(stat.headers().get(OWNER_HEADER))) {
+                MinioFutures.await(client.get().removeObject(RemoveObjectArgs.builder()
+                        .bucket(lease.bucket)
+                        .object(lockObject)
+                        .extraHeaders(Collections.singletonMap("If-Match", "\"" + lease.etag + "\""))
+                        .build()));
+            }
+        } catch (ErrorResponseException e) {
+            if (!"PreconditionFailed".equals(e.errorResponse().code())) {
+                log.warn("minio sweeper failed to release lock in bucket " + lease.bucket, e);
+            }
+        } catch (Exception e) {
+            //锁文件超过租期后可被接管，不影响下次清理
+            log.warn("minio sweeper failed to release lock in bucket " + lease.bucket, e);
+        }
+    }
+
+    /**
+     * 条件写入锁文件并确认持有者
+     *
+     * @return 是否获得锁
+     */
+    private boolean write(Lease lease, String condition) throws Exception {
+        String etag = "*".equals(lease.etag) ? "*" : "\"" + lease.etag + "\"";
+        long now = System.currentTimeMillis();
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("sweeper-owner", owner);
+        //到期时间由持有者写入，其他实例不依赖服务端的修改时间判断
+        metadata.put("sweeper-expires", String.valueOf(now + lockTtl));
+        //内容每次不同，保证每次写入后etag变化
+        byte[] content = (owner + " " + now).getBytes(StandardCharsets.UTF_8);
+        if (!putLock(lease.bucket, lockObject, content, condition, etag, metadata)) {
+            return false;
+        }
+        StatObjectResponse stat = statLock(lease.bucket);
+        if (stat == null || !owner.equals(stat.headers().get(OWNER_HEADER))) {
+            return false;
+        }
+        lease.etag = stat.etag();
+        lease.renewedAt = now;
+        return true;
+    }
+
+    /**
+     * 写入锁文件
+     *
+     * @return 是否写入，条件不满足时为false
+     */
+    private boolean putLock(String bucket, String object, byte[] content, String condition, String etag,
+                            Map<String, String> metadata) throws Exception {
+        PutObjectArgs.Builder builder = PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(object)
+                .stream(new ByteArrayInputStream(content), content.length, -1)
+                .userMetadata(metadata);
+        if (condition != null) {
+            builder.headers(Collections.singletonMap(condition, etag));
+        }
+        try {
+            MinioFutures.await(client.get().putObject(builder.build()));
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("PreconditionFailed".equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 探测服务端是否支持条件写入，写入探测文件后分别以If-None-Match与不匹配的If-Match再次写入，两次都应被拒绝
+     *
+     * @return 是否支持
+     */
+    private boolean probe(String bucket) {
+        String object = probeObject();
+        byte[] content = owner.getBytes(StandardCharsets.UTF_8);
+        Map<String, String> metadata = Collections.singletonMap("sweeper-owner", owner);
+        try {
+            putLock(bucket, object, content, null, null, metadata);
+            boolean supported = !putLock(bucket, object, content, "If-None-Match", "*", metadata)
+                    && !putLock(bucket, object, content, "If-Match", PROBE_ETAG, metadata);
+            if (!supported) {
+                log.warn("minio sweeper detected that bucket " + bucket + " ignores conditional writes");
+            }
+            return supported;
+        } catch (Exception e) {
+            throw new IllegalStateException("minio sweeper failed to probe conditional writes in bucket " + bucket, e);
+        } finally {
+            try {
+                MinioFutures.await(client.get().removeObject(RemoveObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(object)
+                        .build()));
+            } catch (Exception e) {
+                log.warn("minio sweeper failed to remove probe object in bucket " + bucket, e);
+            }
+        }
+    }
+
+    /**
+     * 锁文件元数据中的到期时间，缺失或无法解析时视为已到期
+     */
+    private static long expiresAt(StatObjectResponse stat) {
+        String expires = stat.headers().get(EXPIRES_HEADER);
+        try {
+            return expires == null ? 0 : Long.parseLong(expires);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 查询锁文件
+     *
+     * @return 锁文件信息，不存在时为null
+     */
+    private StatObjectResponse statLock(String bucket) throws Exception {
+        try {
+            return MinioFutures.await(client.get().statObject(StatObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(lockObject)
+                    .build()));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        for (Runnable dropped : executor.shutdownNow()) {
+            //未执行的请求归还许可，避免等待请求结束的清理线程一直阻塞
+            if (dropped instanceof Request) {
+                ((Request) dropped).permits.release();
+            }
+        }
+    }
+
+    /**
+     * 清理次数，不含因已有清理在进行中而跳过的
+     *
+     * @return long
+     */
+    public long getSweeps() {
+        return sweeps.get();
+    }
+
+    /**
+     * 因锁被其他实例持有而跳过的桶数
+     *
+     * @return long
+     */
+    public long getSkippedBuckets() {
+        return skippedBuckets.get();
+    }
+
+    /**
+     * 取消的分片上传数
+     *
+     * @return long
+     */
+    public long getAbortedUploads() {
+        return abortedUploads.get();
+    }
+
+    /**
+     * 删除的分片文件数
+     *
+     * @return long
+     */
+    public long getDeletedObjects() {
+        return deletedObjects.get();
+    }
+
+    /**
+     * 回收的字节数，包括取消的分片上传中已上传的分片与删除的分片文件
+     *
+     * @return long
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * 失败的请求数
+     *
+     * @return long
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * 最近一次清理的结果
+     *
+     * @return 清理结果，尚未清理时为null
+     */
+    public SweepReport getLastReport() {
+        return lastReport;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * 提交到线程池的请求，结束或关闭时被丢弃后归还许可
+     */
+    private static final class Request implements Runnable {
+        private final Semaphore permits;
+        private final Task task;
+        private final SweepReport report;
+
+        private Request(Semaphore permits, Task task, SweepReport report) {
+            this.permits = permits;
+            this.task = task;
+            this.report = report;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Exception e) {
+                report.errors.incrementAndGet();
+                log.warn("minio sweeper request failed", e);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 桶的锁租约
+     */
+    private static final class Lease {
+        private final String bucket;
+        private String etag;
+        private long renewedAt;
+        private volatile boolean lost;
+
+        private Lease(String bucket, String etag) {
+            this.bucket = bucket;
+            this.etag = etag;
+        }
+    }
+
+    /**
+     * 单次清理结果
+     */
+    public static class SweepReport {
+        private final AtomicLong skippedBuckets = new AtomicLong();
+        private final AtomicLong abortedUploads = new AtomicLong();
+        private final AtomicLong uploadBytes = new AtomicLong();
+        private final AtomicLong deletedObjects = new AtomicLong();
+        private final AtomicLong objectBytes = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private long elapsed;
+
+        public long getSkippedBuckets() {
+            return skippedBuckets.get();
+        }
+
+        public long getAbortedUploads() {
+            return abortedUploads.get();
+        }
+
+        /**
+         * 取消的分片上传中已上传的分片大小
+         *
+         * @return 字节数
+         */
+        public long getUploadBytes() {
+            return uploadBytes.get();
+        }
+
+        public long getDeletedObjects() {
+            return deletedObjects.get();
+        }
+
+        /**
+         * 删除的分片文件大小
+         *
+         * @return 字节数
+         */
+        public long getObjectBytes() {
+            return objectBytes.get();
+        }
+
+        public long getReclaimedBytes() {
+            return getUploadBytes() + getObjectBytes();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * 清理耗时，单位：毫秒
+         *
+         * @return long
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return "abortedUploads=" + getAbortedUploads() + ", uploadBytes=" + getUploadBytes()
+                    + ", deletedObjects=" + getDeletedObjects() + ", objectBytes=" + getObjectBytes()
+                    + ", skippedBuckets=" + getSkippedBuckets() + ", errors=" + getErrors()
+                    + ", elapsed=" + elapsed + "ms";
+        }
+    }
+}
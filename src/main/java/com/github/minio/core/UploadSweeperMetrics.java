@@ -0,0 +1,42 @@
+package com.github.minio.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 清理指标，回收量为累计值
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class UploadSweeperMetrics implements MeterBinder {
+
+    private final UploadSweeper sweeper;
+
+    public UploadSweeperMetrics(UploadSweeper sweeper) {
+        this.sweeper = sweeper;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "minio.sweeper.runs", "清理次数", UploadSweeper::getSweeps);
+        counter(registry, "minio.sweeper.skipped", "因锁被其他实例持有而跳过的桶数", UploadSweeper::getSkippedBuckets);
+        counter(registry, "minio.sweeper.uploads.aborted", "取消的分片上传数", UploadSweeper::getAbortedUploads);
+        counter(registry, "minio.sweeper.objects.deleted", "删除的分片文件数", UploadSweeper::getDeletedObjects);
+        counter(registry, "minio.sweeper.errors", "失败的请求数", UploadSweeper::getErrors);
+        FunctionCounter.builder("minio.sweeper.reclaimed", sweeper, s -> (double) s.getReclaimedBytes())
+                .baseUnit("bytes")
+                .description("回收的字节数")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String description,
+                         ToDoubleFunction<UploadSweeper> count) {
+        FunctionCounter.builder(name, sweeper, count)
+                .description(description)
+                .register(registry);
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.minio.trace;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将请求各阶段耗时导出为micrometer直方图
+ * <p>
+ * minio.request：请求总耗时，minio.request.phase：各网络阶段耗时，minio.request.pool.wait：连接池等待耗时
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MicrometerTraceListener implements RequestTraceListener, MeterBinder {
+
+    private volatile MeterRegistry registry;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onTrace(RequestTrace trace) {
+        MeterRegistry registry = this.registry;
+        if (registry == null) {
+            return;
+        }
+        String cluster = trace.getCluster();
+        String operation = trace.getOperation();
+        Timer.builder("minio.request")
+                .tag("cluster", cluster)
+                .tag("operation", operation)
+                .tag("outcome", trace.isFailed() ? "failure" : "success")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(trace.getTotal(), TimeUnit.NANOSECONDS);
+        Timer.builder("minio.request.pool.wait")
+                .tag("cluster", cluster)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(trace.getPoolWait(), TimeUnit.NANOSECONDS);
+        phase(registry, cluster, operation, "dns", trace.getDns());
+        phase(registry, cluster, operation, "connect", trace.getConnect());
+        phase(registry, cluster, operation, "tls", trace.getTls());
+        phase(registry, cluster, operation, "upload", trace.getUpload());
+        phase(registry, cluster, operation, "ttfb", trace.getTimeToFirstByte());
+        phase(registry, cluster, operation, "download", trace.getDownload());
+    }
+
+    private static void phase(MeterRegistry registry, String cluster, String operation, String phase, long nanos) {
+        //复用连接时没有dns、建连等阶段，不记录0值以免拉低分位数
+        if (nanos <= 0) {
+            return;
+        }
+        Timer.builder("minio.request.phase")
+                .tag("cluster", cluster)
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,286 @@
+package com.github.minio.trace;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于OkHttp EventListener的请求追踪器，记录每个S3请求的各网络阶段耗时，超过阈值的慢请求打印日志
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioRequestTracer implements EventListener.Factory {
+
+    private static final Log log = LogFactory.getLog(MinioRequestTracer.class);
+
+    /**
+     * 默认集群名称
+     */
+    public static final String DEFAULT_CLUSTER = "default";
+
+    private final List<RequestTraceListener> listeners;
+
+    /**
+     * 集群名称
+     */
+    private final String cluster;
+
+    /**
+     * 慢请求阈值，单位：纳秒
+     */
+    private final long slowThreshold;
+
+    /**
+     * @param slowThresholdMillis 慢请求阈值，单位：毫秒，小于等于0时不打印慢请求日志
+     */
+    public MinioRequestTracer(long slowThresholdMillis) {
+        this(DEFAULT_CLUSTER, slowThresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis) : 0,
+                new CopyOnWriteArrayList<>());
+    }
+
+    private MinioRequestTracer(String cluster, long slowThreshold, List<RequestTraceListener> listeners) {
+        this.cluster = cluster;
+        this.slowThreshold = slowThreshold;
+        this.listeners = listeners;
+    }
+
+    /**
+     * 生成指定集群的追踪器，与当前追踪器共用监听器
+     *
+     * @param cluster 集群名称
+     * @return MinioRequestTracer
+     */
+    public MinioRequestTracer forCluster(String cluster) {
+        return new MinioRequestTracer(cluster, slowThreshold, listeners);
+    }
+
+    /**
+     * 添加请求耗时监听器
+     *
+     * @param listener 监听器
+     */
+    public void addListener(RequestTraceListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        return new TracingEventListener();
+    }
+
+    private void complete(RequestTrace trace) {
+        if (slowThreshold > 0 && trace.getTotal() >= slowThreshold && log.isWarnEnabled()) {
+            log.warn("slow minio request: " + trace);
+        }
+        for (RequestTraceListener listener : listeners) {
+            try {
+                listener.onTrace(trace);
+            } catch (RuntimeException e) {
+                log.warn("minio request trace listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * 根据请求方法与查询参数推断S3操作名称
+     *
+     * @param request    请求
+     * @param objectName 文件名称
+     * @return 操作名称
+     */
+    private static String operation(Request request, String objectName) {
+        HttpUrl url = request.url();
+        boolean object = objectName != null;
+        switch (request.method()) {
+            case "GET":
+                if (url.queryParameter("uploadId") != null) {
+                    return "ListParts";
+                }
+                if (!object) {
+                    if (url.queryParameter("uploads") != null) {
+                        return "ListMultipartUploads";
+                    }
+                    if (url.queryParameter("location") != null) {
+                        return "GetBucketLocation";
+                    }
+                    return url.pathSize() == 0 || url.pathSegments().get(0).isEmpty() ? "ListBuckets" : "ListObjects";
+                }
+                return "GetObject";
+            case "HEAD":
+                return object ? "StatObject" : "BucketExists";
+            case "PUT":
+                if (!object) {
+                    return "MakeBucket";
+                }
+                if (url.queryParameter("partNumber") != null) {
+                    return request.header("x-amz-copy-source") != null ? "UploadPartCopy" : "UploadPart";
+                }
+                return request.header("x-amz-copy-source") != null ? "CopyObject" : "PutObject";
+            case "POST":
+                if (url.queryParameter("uploads") != null) {
+                    return "CreateMultipartUpload";
+                }
+                if (url.queryParameter("uploadId") != null) {
+                    return "CompleteMultipartUpload";
+                }
+                if (url.queryParameter("delete") != null) {
+                    return "DeleteObjects";
+                }
+                if (url.queryParameter("select") != null) {
+                    return "SelectObjectContent";
+                }
+                return "Post";
+            case "DELETE":
+                if (url.queryParameter("uploadId") != null) {
+                    return "AbortMultipartUpload";
+                }
+                return object ? "RemoveObject" : "RemoveBucket";
+            default:
+                return request.method();
+        }
+    }
+
+    /**
+     * 单个请求的事件监听器，同一请求的事件按顺序回调
+     */
+    private final class TracingEventListener extends EventListener {
+        private long callStart;
+        private long dnsStart;
+        private long dns;
+        private long connectStart;
+        private long connect;
+        private long secureConnectStart;
+        private long tls;
+        private long acquired;
+        private long requestBodyStart;
+        private long requestEnd;
+        private long upload;
+        private long responseHeadersStart;
+        private long responseBodyStart;
+        private long download;
+        private long bytesSent;
+        private long bytesReceived;
+        private Request request;
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+            request = call.request();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            dns += System.nanoTime() - dnsStart;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tls += System.nanoTime() - secureConnectStart;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connect += System.nanoTime() - connectStart;
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                  Protocol protocol, IOException ioe) {
+            connect += System.nanoTime() - connectStart;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (acquired == 0) {
+                acquired = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            this.request = request;
+            requestEnd = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyStart(Call call) {
+            requestBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            requestEnd = System.nanoTime();
+            upload += requestEnd - requestBodyStart;
+            bytesSent += byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            responseHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            download += System.nanoTime() - responseBodyStart;
+            bytesReceived += byteCount;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(false);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            long total = System.nanoTime() - callStart;
+            //新建连接的耗时不计入连接池等待
+            long poolWait = acquired == 0 ? 0 : Math.max(0, acquired - callStart - dns - connect);
+            long ttfb = responseHeadersStart == 0 || requestEnd == 0 ? 0 : responseHeadersStart - requestEnd;
+            List<String> segments = request.url().pathSegments();
+            String bucketName = segments.isEmpty() || segments.get(0).isEmpty() ? null : segments.get(0);
+            String objectName = segments.size() > 1 ? String.join("/", segments.subList(1, segments.size())) : "";
+            objectName = objectName.isEmpty() ? null : objectName;
+            complete(new RequestTrace(cluster, operation(request, objectName), bucketName, objectName, bytesSent,
+                    bytesReceived, poolWait, dns, connect - tls, tls, upload, ttfb, download, total, failed));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.minio.trace;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次S3请求的各网络阶段耗时，时间单位：纳秒
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class RequestTrace {
+    /**
+     * 集群名称，未配置多集群时为default
+     */
+    private final String cluster;
+    /**
+     * 操作名称，如GetObject、UploadPart
+     */
+    private final String operation;
+    /**
+     * 桶名称
+     */
+    private final String bucketName;
+    /**
+     * 文件名称
+     */
+    private final String objectName;
+    /**
+     * 上传字节数
+     */
+    private final long bytesSent;
+    /**
+     * 下载字节数
+     */
+    private final long bytesReceived;
+    /**
+     * 等待连接池分配连接的耗时，不包含新建连接的耗时
+     */
+    private final long poolWait;
+    /**
+     * dns解析耗时
+     */
+    private final long dns;
+    /**
+     * tcp建连耗时，不包含tls握手
+     */
+    private final long connect;
+    /**
+     * tls握手耗时
+     */
+    private final long tls;
+    /**
+     * 请求体发送耗时
+     */
+    private final long upload;
+    /**
+     * 请求发送完成到收到响应头的耗时
+     */
+    private final long timeToFirstByte;
+    /**
+     * 响应体接收耗时
+     */
+    private final long download;
+    /**
+     * 总耗时
+     */
+    private final long total;
+    /**
+     * 是否失败
+     */
+    private final boolean failed;
+
+    public RequestTrace(String cluster, String operation, String bucketName, String objectName, long bytesSent, long bytesReceived,
+                        long poolWait, long dns, long connect, long tls, long upload, long timeToFirstByte,
+                        long download, long total, boolean failed) {
+        this.cluster = cluster;
+        this.operation = operation;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.poolWait = poolWait;
+        this.dns = dns;
+        this.connect = connect;
+        this.tls = tls;
+        this.upload = upload;
+        this.timeToFirstByte = timeToFirstByte;
+        this.download = download;
+        this.total = total;
+        this.failed = failed;
+    }
+
+    public String getCluster() {
+        return cluster;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getPoolWait() {
+        return poolWait;
+    }
+
+    public long getDns() {
+        return dns;
+    }
+
+    public long getConnect() {
+        return connect;
+    }
+
+    public long getTls() {
+        return tls;
+    }
+
+    public long getUpload() {
+        return upload;
+    }
+
+    public long getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public long getDownload() {
+        return download;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "cluster=" + cluster
+                + ", operation=" + operation
+                + ", bucket=" + bucketName
+                + ", object=" + objectName
+                + ", bytesSent=" + bytesSent
+                + ", bytesReceived=" + bytesReceived
+                + ", failed=" + failed
+                + ", total=" + millis(total) + "ms"
+                + " [poolWait=" + millis(poolWait)
+                + "ms, dns=" + millis(dns)
+                + "ms, connect=" + millis(connect)
+                + "ms, tls=" + millis(tls)
+                + "ms, upload=" + millis(upload)
+                + "ms, ttfb=" + millis(timeToFirstByte)
+                + "ms, download=" + millis(download) + "ms]";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.minio.trace;
+
+/**
+ * 请求耗时监听器，每个请求结束后回调
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+@FunctionalInterface
+public interface RequestTraceListener {
+    /**
+     * 请求结束
+     *
+     * @param trace 请求各阶段耗时
+     */
+    void onTrace(RequestTrace trace);
+}
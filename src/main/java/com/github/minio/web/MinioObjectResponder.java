@@ -0,0 +1,93 @@
+package com.github.minio.web;
+
+import com.github.minio.core.ExtendedMinioAsyncClient;
+import okhttp3.Response;
+import okio.Okio;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spring MVC文件响应，支持Range断点续传与条件请求
+ * <p>
+ * 客户端的Range、If-None-Match、If-Modified-Since转换为minio的范围读取与条件读取，正确返回206、304；
+ * 响应体按okio分段直接写入servlet输出流，不经过额外的堆缓冲区
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioObjectResponder {
+
+    /**
+     * 按桶名称选择集群的客户端
+     */
+    private final Function<String, ExtendedMinioAsyncClient> client;
+
+    /**
+     * 所有桶使用同一个客户端
+     *
+     * @param client 客户端
+     */
+    public MinioObjectResponder(Supplier<ExtendedMinioAsyncClient> client) {
+        this(bucketName -> client.get());
+    }
+
+    /**
+     * 按桶名称选择客户端，多集群时与RoutingMinioTemplate的路由一致
+     *
+     * @param client 桶名称到客户端的映射
+     */
+    public MinioObjectResponder(Function<String, ExtendedMinioAsyncClient> client) {
+        this.client = client;
+    }
+
+    /**
+     * 将文件写入响应
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param request    请求
+     * @param response   响应
+     * @throws Exception 异常
+     */
+    public void respond(String bucketName, String objectName, HttpServletRequest request,
+                        HttpServletResponse response) throws Exception {
+        HttpHeaders requestHeaders = new ServletServerHttpRequest(request).getHeaders();
+        Response object;
+        try {
+            object = client.apply(bucketName).getObjectResponse(bucketName, objectName,
+                    ObjectResponses.requestHeaders(requestHeaders)).get();
+        } catch (ExecutionException e) {
+            HttpStatus status = ObjectResponses.errorStatus(e);
+            if (status == null) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            response.setStatus(status.value());
+            String etag = ObjectResponses.notModifiedETag(requestHeaders);
+            if (status == HttpStatus.NOT_MODIFIED && etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+            }
+            return;
+        }
+        try (Response r = object) {
+            response.setStatus(r.code());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            for (String name : ObjectResponses.FORWARDED_HEADERS) {
+                String value = r.header(name);
+                if (value != null) {
+                    response.setHeader(name, value);
+                }
+            }
+            OutputStream out = response.getOutputStream();
+            r.body().source().readAll(Okio.sink(out));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.minio.web;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 文件响应的请求头转换与错误状态码映射
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+final class ObjectResponses {
+    /**
+     * 从minio响应透传给客户端的响应头
+     */
+    static final List<String> FORWARDED_HEADERS = Arrays.asList(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.CONTENT_RANGE,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.CONTENT_DISPOSITION,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.EXPIRES,
+            HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED);
+
+    /**
+     * 响应体读取缓冲区大小
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private ObjectResponses() {
+    }
+
+    /**
+     * 将客户端的Range、条件请求头转换为minio请求头，多段Range不支持时忽略，返回完整文件
+     *
+     * @param headers 客户端请求头
+     * @return minio请求头
+     */
+    static Multimap<String, String> requestHeaders(HttpHeaders headers) {
+        Multimap<String, String> result = HashMultimap.create();
+        String range = headers.getFirst(HttpHeaders.RANGE);
+        if (range != null && isSingleRange(range)) {
+            result.put(HttpHeaders.RANGE, range);
+        }
+        String ifNoneMatch = headers.getFirst(HttpHeaders.IF_NONE_MATCH);
+        String ifModifiedSince = headers.getFirst(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifNoneMatch != null) {
+            //同时存在时以If-None-Match为准
+            result.put(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        } else if (ifModifiedSince != null) {
+            result.put(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+        }
+        return result;
+    }
+
+    private static boolean isSingleRange(String range) {
+        try {
+            return HttpRange.parseRanges(range).size() == 1;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 304未修改时回写的ETag，取自客户端的If-None-Match
+     *
+     * @param headers 客户端请求头
+     * @return ETag，无法确定时为null
+     */
+    static String notModifiedETag(HttpHeaders headers) {
+        String ifNoneMatch = headers.getFirst(HttpHeaders.IF_NONE_MATCH);
+        return ifNoneMatch == null || ifNoneMatch.contains(",") || "*".equals(ifNoneMatch.trim())
+                ? null : ifNoneMatch.trim();
+    }
+
+    /**
+     * 将minio异常映射为应返回给客户端的状态码
+     *
+     * @param e 异常
+     * @return 状态码，不是可直接返回的状态时为null
+     */
+    static HttpStatus errorStatus(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        int code;
+        if (cause instanceof ServerException) {
+            //minio将空响应体的304作为ServerException抛出
+            code = ((ServerException) cause).statusCode();
+        } else if (cause instanceof ErrorResponseException) {
+            code = ((ErrorResponseException) cause).response().code();
+        } else {
+            return null;
+        }
+        switch (code) {
+            case 304:
+                return HttpStatus.NOT_MODIFIED;
+            case 404:
+                return HttpStatus.NOT_FOUND;
+            case 412:
+                return HttpStatus.PRECONDITION_FAILED;
+            case 416:
+                return HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.minio.web;
+
+import com.github.minio.core.ExtendedMinioAsyncClient;
+import okhttp3.Response;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spring WebFlux文件响应，支持Range断点续传与条件请求
+ * <p>
+ * 响应体按下游请求量读取，读取在boundedElastic线程中进行，不阻塞事件循环
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class ReactiveMinioObjectResponder {
+
+    /**
+     * 按桶名称选择集群的客户端
+     */
+    private final Function<String, ExtendedMinioAsyncClient> client;
+
+    /**
+     * 所有桶使用同一个客户端
+     *
+     * @param client 客户端
+     */
+    public ReactiveMinioObjectResponder(Supplier<ExtendedMinioAsyncClient> client) {
+        this(bucketName -> client.get());
+    }
+
+    /**
+     * 按桶名称选择客户端，多集群时与RoutingMinioTemplate的路由一致
+     *
+     * @param client 桶名称到客户端的映射
+     */
+    public ReactiveMinioObjectResponder(Function<String, ExtendedMinioAsyncClient> client) {
+        this.client = client;
+    }
+
+    /**
+     * 将文件写入响应
+     *
+     * @param bucketName 桶名称
+     * @param objectName 文件名称
+     * @param request    请求
+     * @param response   响应
+     * @return 写入完成
+     */
+    public Mono<Void> respond(String bucketName, String objectName, ServerHttpRequest request,
+                              ServerHttpResponse response) {
+        HttpHeaders requestHeaders = request.getHeaders();
+        return Mono.fromFuture(() -> getObject(bucketName, objectName, requestHeaders))
+                .flatMap(r -> {
+                    response.setRawStatusCode(r.code());
+                    HttpHeaders headers = response.getHeaders();
+                    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+                    for (String name : ObjectResponses.FORWARDED_HEADERS) {
+                        String value = r.header(name);
+                        if (value != null) {
+                            headers.set(name, value);
+                        }
+                    }
+                    Flux<DataBuffer> body = DataBufferUtils.readInputStream(() -> r.body().byteStream(),
+                                    response.bufferFactory(), ObjectResponses.BUFFER_SIZE)
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .doFinally(signal -> r.close());
+                    return response.writeWith(body);
+                })
+                .onErrorResume(e -> ObjectResponses.errorStatus(e) != null, e -> {
+                    HttpStatus status = ObjectResponses.errorStatus(e);
+                    response.setStatusCode(status);
+                    String etag = ObjectResponses.notModifiedETag(requestHeaders);
+                    if (status == HttpStatus.NOT_MODIFIED && etag != null) {
+                        response.getHeaders().set(HttpHeaders.ETAG, etag);
+                    }
+                    return response.setComplete();
+                });
+    }
+
+    private CompletableFuture<Response> getObject(String bucketName, String objectName, HttpHeaders requestHeaders) {
+        try {
+            return client.apply(bucketName).getObjectResponse(bucketName, objectName,
+                    ObjectResponses.requestHeaders(requestHeaders));
+        } catch (Exception e) {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.minio.testing;
+
+import com.github.minio.autoconfigure.MinioAutoConfiguration;
+import com.github.minio.autoconfigure.MinioClientFactory;
+import com.github.minio.autoconfigure.MinioProperties;
+import com.github.minio.trace.MinioRequestTracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+
+/**
+ * 模拟S3服务自动配置，仅随tests分类的jar发布，开启后默认集群的客户端连接到进程内的模拟S3服务
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+@AutoConfiguration(before = MinioAutoConfiguration.class)
+@EnableConfigurationProperties(FakeS3Properties.class)
+@ConditionalOnProperty(prefix = "spring.minio.fake", name = "enable", havingValue = "true")
+public class FakeS3AutoConfiguration {
+
+    /**
+     * 模拟S3服务
+     *
+     * @param fake       模拟S3服务配置
+     * @param properties 配置文件
+     * @return FakeS3Server
+     * @throws IOException 端口不可用
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public FakeS3Server minioFakeS3Server(FakeS3Properties fake, MinioProperties properties) throws IOException {
+        FakeS3Server server = new FakeS3Server().start();
+        FaultInjection faults = server.getFaults();
+        faults.setLatency(fake.getLatency());
+        faults.setLatencyJitter(fake.getLatencyJitter());
+        faults.setBandwidth(fake.getBandwidth());
+        faults.setThrottleRate(fake.getThrottleRate());
+        faults.setErrorRate(fake.getErrorRate());
+        if (properties.getBucketName() != null) {
+            server.createBucket(properties.getBucketName());
+        }
+        return server;
+    }
+
+    /**
+     * 连接到模拟S3服务的客户端工厂，不修改配置中的host
+     *
+     * @param properties 配置文件
+     * @param server     模拟S3服务
+     * @param tracer     请求追踪器
+     * @return MinioClientFactory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MinioClientFactory minioClientFactory(MinioProperties properties, FakeS3Server server,
+                                                 ObjectProvider<MinioRequestTracer> tracer) {
+        MinioClientFactory clientFactory = new MinioClientFactory(properties, server.getEndpoint());
+        tracer.ifAvailable(clientFactory::setEventListenerFactory);
+        return clientFactory;
+    }
+}
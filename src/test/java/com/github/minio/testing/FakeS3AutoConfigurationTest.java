@@ -0,0 +1,168 @@
+package com.github.minio.testing;
+
+import com.github.minio.autoconfigure.MinioAutoConfiguration;
+import com.github.minio.autoconfigure.MinioProperties;
+import com.github.minio.core.MinioTemplate;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 模拟S3服务冒烟测试，启动FakeS3AutoConfiguration，通过模板完成上传、读取、分片、合并、复制与条件写入
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+class FakeS3AutoConfigurationTest {
+
+    private static final String BUCKET = "smoke";
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(FakeS3AutoConfiguration.class, MinioAutoConfiguration.class))
+            .withPropertyValues(
+                    "spring.minio.fake.enable=true",
+                    "spring.minio.host=http://unused:9000",
+                    "spring.minio.bucket-name=" + BUCKET,
+                    "spring.minio.access-key=fake",
+                    "spring.minio.secret-key=fake-secret",
+                    "spring.minio.part-size=" + PART_SIZE);
+
+    @Test
+    void connectsToFakeServerWithoutChangingHost() {
+        runner.run(context -> {
+            assertThat(context).hasSingleBean(FakeS3Server.class);
+            assertThat(context.getBean(MinioProperties.class).getHost()).isEqualTo("http://unused:9000");
+            assertThat(context.getBean(MinioTemplate.class).bucketExists(BUCKET)).isTrue();
+        });
+    }
+
+    @Test
+    void uploadsAndReadsBack() {
+        runner.run(context -> {
+            MinioTemplate template = context.getBean(MinioTemplate.class);
+            byte[] data = "hello fake s3".getBytes();
+            template.uploadFileWithPart(BUCKET, "small.txt", new ByteArrayInputStream(data), (long) data.length,
+                    "text/plain");
+
+            StatObjectResponse stat = template.getFileInfo(BUCKET, "small.txt");
+            assertThat(stat.size()).isEqualTo(data.length);
+            assertThat(stat.contentType()).isEqualTo("text/plain");
+            assertThat(read(template.getObject(BUCKET, "small.txt"))).isEqualTo(data);
+        });
+    }
+
+    @Test
+    void uploadsMultipartAndCopies() {
+        runner.run(context -> {
+            MinioTemplate template = context.getBean(MinioTemplate.class);
+            byte[] data = random(2 * PART_SIZE + 1024);
+            template.uploadFileWithPart(BUCKET, "big.bin", new ByteArrayInputStream(data), (long) data.length,
+                    "application/octet-stream");
+            assertThat(read(template.getObject(BUCKET, "big.bin"))).isEqualTo(data);
+
+            template.copyObject(BUCKET, "big.bin", BUCKET, "big-copy.bin");
+            StatObjectResponse copy = template.getFileInfo(BUCKET, "big-copy.bin");
+            assertThat(copy.size()).isEqualTo(data.length);
+            assertThat(copy.contentType()).isEqualTo("application/octet-stream");
+            assertThat(read(template.getObject(BUCKET, "big-copy.bin"))).isEqualTo(data);
+        });
+    }
+
+    @Test
+    void composesChunks() {
+        runner.run(context -> {
+            MinioTemplate template = context.getBean(MinioTemplate.class);
+            byte[] first = random(PART_SIZE);
+            byte[] second = random(1024);
+            template.uploadFileWithPart(BUCKET, "chunks/0", new ByteArrayInputStream(first), (long) first.length,
+                    "application/octet-stream");
+            template.uploadFileWithPart(BUCKET, "chunks/1", new ByteArrayInputStream(second), (long) second.length,
+                    "application/octet-stream");
+
+            template.composeObject(BUCKET, Arrays.asList("chunks/0", "chunks/1"), "composed.bin");
+
+            byte[] expected = new byte[first.length + second.length];
+            System.arraycopy(first, 0, expected, 0, first.length);
+            System.arraycopy(second, 0, expected, first.length, second.length);
+            assertThat(read(template.getObject(BUCKET, "composed.bin"))).isEqualTo(expected);
+        });
+    }
+
+    @Test
+    void rejectsConditionalWriteOnExistingObject() {
+        runner.run(context -> {
+            MinioTemplate template = context.getBean(MinioTemplate.class);
+            putIfAbsent(template, "lock", "first");
+
+            assertThatThrownBy(() -> putIfAbsent(template, "lock", "second"))
+                    .isInstanceOf(ErrorResponseException.class)
+                    .satisfies(e -> assertThat(((ErrorResponseException) e).response().code()).isEqualTo(412));
+            assertThat(read(template.getObject(BUCKET, "lock"))).isEqualTo("first".getBytes());
+        });
+    }
+
+    @Test
+    void surfacesInjectedThrottling() {
+        runner.run(context -> {
+            MinioTemplate template = context.getBean(MinioTemplate.class);
+            byte[] data = "throttled".getBytes();
+            template.uploadFileWithPart(BUCKET, "throttled.txt", new ByteArrayInputStream(data),
+                    (long) data.length, "text/plain");
+
+            FaultInjection faults = context.getBean(FakeS3Server.class).getFaults();
+            faults.setThrottleRate(1);
+            //HEAD请求的错误响应没有消息体，客户端只能按状态码抛出
+            assertThatThrownBy(() -> template.getFileInfo(BUCKET, "throttled.txt"))
+                    .isInstanceOf(ServerException.class)
+                    .satisfies(e -> assertThat(((ServerException) e).statusCode()).isEqualTo(503));
+
+            faults.setThrottleRate(0);
+            assertThat(template.getFileInfo(BUCKET, "throttled.txt").size()).isEqualTo(data.length);
+        });
+    }
+
+    private static void putIfAbsent(MinioTemplate template, String objectName, String content) throws Exception {
+        byte[] data = content.getBytes();
+        template.getMinioClient().putObject(PutObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(objectName)
+                .stream(new ByteArrayInputStream(data), data.length, -1)
+                .headers(Collections.singletonMap("If-None-Match", "*"))
+                .build());
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
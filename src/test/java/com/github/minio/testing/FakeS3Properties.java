@@ -0,0 +1,90 @@
+package com.github.minio.testing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 模拟S3服务配置，开启后在进程内启动内存存储的S3服务，默认集群的客户端连接到该服务，同时创建bucketName对应的桶
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+@ConfigurationProperties(prefix = "spring.minio.fake")
+public class FakeS3Properties {
+    /**
+     * 是否开启模拟S3服务
+     */
+    private boolean enable;
+
+    /**
+     * 每个请求的固定延迟，单位：毫秒
+     */
+    private long latency;
+
+    /**
+     * 在固定延迟上增加的随机延迟上限，单位：毫秒
+     */
+    private long latencyJitter;
+
+    /**
+     * 每个连接的带宽上限，单位：字节/秒，为0时不限制
+     */
+    private long bandwidth;
+
+    /**
+     * 返回503 SlowDown的请求比例，0到1
+     */
+    private double throttleRate;
+
+    /**
+     * 返回500 InternalError的请求比例，0到1
+     */
+    private double errorRate;
+
+    public boolean getEnable() {
+        return enable;
+    }
+
+    public void setEnable(boolean enable) {
+        this.enable = enable;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    public long getLatencyJitter() {
+        return latencyJitter;
+    }
+
+    public void setLatencyJitter(long latencyJitter) {
+        this.latencyJitter = latencyJitter;
+    }
+
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    public void setBandwidth(long bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+}
@@ -0,0 +1,952 @@
+package com.github.minio.testing;
+
+import com.github.minio.testing.FakeS3Store.Bucket;
+import com.github.minio.testing.FakeS3Store.StoredObject;
+import com.github.minio.testing.FakeS3Store.Upload;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的模拟S3服务，仅用于测试与压测，数据保存在内存中，不校验签名
+ * <p>
+ * 支持模板使用的操作：桶的增删查、普通上传与分片上传、Range读取与条件读取、文件信息查询、ListObjectsV2、
+ * 服务端复制与合并、单个与批量删除、条件写入、未完成分片上传与分片列表；可注入延迟、带宽限制、503 SlowDown与500错误
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class FakeS3Server implements Closeable {
+
+    private static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private static final DateTimeFormatter XML_DATE =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private static final Pattern PART = Pattern.compile(
+            "<Part>.*?<PartNumber>(\\d+)</PartNumber>.*?<ETag>(.*?)</ETag>.*?</Part>", Pattern.DOTALL);
+
+    private static final Pattern KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    /**
+     * 带宽限制时每次读写的大小
+     */
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * 随文件保存并在读取时返回的标准响应头
+     */
+    private static final List<String> STORED_HEADERS = Arrays.asList("cache-control", "content-disposition",
+            "content-encoding", "content-language", "content-type", "expires");
+
+    private final int port;
+
+    private final FakeS3Store store = new FakeS3Store();
+
+    private final FaultInjection faults = new FaultInjection();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public FakeS3Server() {
+        this(0);
+    }
+
+    /**
+     * @param port 监听端口，为0时随机
+     */
+    public FakeS3Server(int port) {
+        this.port = port;
+    }
+
+    /**
+     * 启动服务，只监听本地回环地址
+     *
+     * @return this
+     * @throws IOException 端口不可用
+     */
+    public FakeS3Server start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-s3-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return this;
+    }
+
+    /**
+     * 服务地址，用作spring.minio.host
+     *
+     * @return 地址
+     */
+    public String getEndpoint() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public FaultInjection getFaults() {
+        return faults;
+    }
+
+    /**
+     * 创建桶
+     *
+     * @param bucketName 桶名称
+     * @return 已存在时为false
+     */
+    public boolean createBucket(String bucketName) {
+        return store.createBucket(bucketName);
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().set("x-amz-request-id", UUID.randomUUID().toString());
+            exchange.getResponseHeaders().set("Server", "FakeS3");
+            if (injectFault(exchange)) {
+                route(exchange, new Request(exchange));
+            }
+        } catch (S3Exception e) {
+            error(exchange, e.status, e.code, e.getMessage());
+        } catch (RuntimeException e) {
+            error(exchange, 500, "InternalError", String.valueOf(e));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 注入延迟与错误
+     *
+     * @return 是否继续处理请求
+     */
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = faults.getLatency() + (faults.getLatencyJitter() > 0
+                ? random.nextLong(faults.getLatencyJitter() + 1) : 0);
+        if (delay > 0) {
+            sleep(delay);
+        }
+        double r = random.nextDouble();
+        if (r < faults.getThrottleRate()) {
+            //读完请求体再返回，避免客户端写请求体时连接被重置
+            readBody(exchange);
+            error(exchange, 503, "SlowDown", "Please reduce your request rate.");
+            return false;
+        }
+        if (r < faults.getThrottleRate() + faults.getErrorRate()) {
+            readBody(exchange);
+            error(exchange, 500, "InternalError", "Injected error.");
+            return false;
+        }
+        return true;
+    }
+
+    private void route(HttpExchange exchange, Request request) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (request.bucket == null) {
+            if ("GET".equals(method)) {
+                listBuckets(exchange);
+                return;
+            }
+            throw new S3Exception(405, "MethodNotAllowed", "The specified method is not allowed.");
+        }
+        if (request.key == null) {
+            switch (method) {
+                case "GET":
+                    if (request.query.containsKey("location")) {
+                        bucket(request);
+                        xml(exchange, 200, "<LocationConstraint xmlns=\"" + NAMESPACE + "\">us-east-1"
+                                + "</LocationConstraint>");
+                    } else if (request.query.containsKey("uploads")) {
+                        listUploads(exchange, request);
+                    } else if (request.query.isEmpty() || request.query.containsKey("list-type")) {
+                        listObjects(exchange, request);
+                    } else {
+                        throw notImplemented();
+                    }
+                    return;
+                case "HEAD":
+                    bucket(request);
+                    empty(exchange, 200);
+                    return;
+                case "PUT":
+                    if (!request.query.isEmpty()) {
+                        throw notImplemented();
+                    }
+                    readBody(exchange);
+                    if (!store.createBucket(request.bucket)) {
+                        throw new S3Exception(409, "BucketAlreadyOwnedByYou",
+                                "Your previous request to create the named bucket succeeded and you already own it.");
+                    }
+                    exchange.getResponseHeaders().set("Location", "/" + request.bucket);
+                    empty(exchange, 200);
+                    return;
+                case "DELETE":
+                    if (!bucket(request).objects.isEmpty()) {
+                        throw new S3Exception(409, "BucketNotEmpty", "The bucket you tried to delete is not empty.");
+                    }
+                    store.removeBucket(request.bucket);
+                    empty(exchange, 204);
+                    return;
+                case "POST":
+                    if (request.query.containsKey("delete")) {
+                        deleteObjects(exchange, request);
+                        return;
+                    }
+                    throw notImplemented();
+                default:
+                    throw notImplemented();
+            }
+        }
+        switch (method) {
+            case "GET":
+                if (request.query.containsKey("uploadId")) {
+                    listParts(exchange, request);
+                    return;
+                }
+                getObject(exchange, request, true);
+                return;
+            case "HEAD":
+                getObject(exchange, request, false);
+                return;
+            case "PUT":
+                if (request.query.containsKey("uploadId")) {
+                    uploadPart(exchange, request);
+                } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                    copyObject(exchange, request);
+                } else {
+                    putObject(exchange, request);
+                }
+                return;
+            case "POST":
+                if (request.query.containsKey("uploads")) {
+                    readBody(exchange);
+                    Upload upload = bucket(request).createUpload(request.key, metadata(exchange.getRequestHeaders()));
+                    xml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                            + element("Bucket", request.bucket) + element("Key", request.key)
+                            + element("UploadId", upload.id) + "</InitiateMultipartUploadResult>");
+                } else if (request.query.containsKey("uploadId")) {
+                    completeUpload(exchange, request);
+                } else {
+                    throw notImplemented();
+                }
+                return;
+            case "DELETE":
+                if (request.query.containsKey("uploadId")) {
+                    if (bucket(request).uploads.remove(request.query.get("uploadId")) == null) {
+                        throw noSuchUpload();
+                    }
+                } else {
+                    deleteObject(exchange, request);
+                }
+                empty(exchange, 204);
+                return;
+            default:
+                throw notImplemented();
+        }
+    }
+
+    private void listBuckets(HttpExchange exchange) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult xmlns=\"" + NAMESPACE + "\">")
+                .append("<Owner><ID>fake</ID><DisplayName>fake</DisplayName></Owner><Buckets>");
+        for (Bucket bucket : store.buckets()) {
+            xml.append("<Bucket>").append(element("Name", bucket.name))
+                    .append(element("CreationDate", XML_DATE.format(Instant.ofEpochMilli(bucket.created))))
+                    .append("</Bucket>");
+        }
+        xml.append("</Buckets></ListAllMyBucketsResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    /**
+     * ListObjectsV2，continuation-token为上一页最后一个key或公共前缀的编码
+     */
+    private void listObjects(HttpExchange exchange, Request request) throws IOException {
+        Bucket bucket = bucket(request);
+        String prefix = request.query.getOrDefault("prefix", "");
+        String delimiter = request.query.get("delimiter");
+        delimiter = delimiter == null || delimiter.isEmpty() ? null : delimiter;
+        int maxKeys = Integer.parseInt(request.query.getOrDefault("max-keys", "1000"));
+        String token = request.query.get("continuation-token");
+        String after = token != null
+                ? new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                : request.query.getOrDefault("start-after", "");
+        boolean url = "url".equals(request.query.get("encoding-type"));
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        String last = null;
+        boolean lastPrefix = false;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : bucket.objects.tailMap(after, false).entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                if (key.compareTo(prefix) > 0) {
+                    break;
+                }
+                continue;
+            }
+            int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+            String commonPrefix = index < 0 ? null : key.substring(0, index + delimiter.length());
+            if (lastPrefix && last.equals(commonPrefix)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                contents.append("<CommonPrefixes>").append(element("Prefix", encode(commonPrefix, url)))
+                        .append("</CommonPrefixes>");
+                last = commonPrefix;
+                lastPrefix = true;
+            } else {
+                StoredObject object = entry.getValue();
+                contents.append("<Contents>").append(element("Key", encode(key, url)))
+                        .append(element("LastModified", XML_DATE.format(Instant.ofEpochMilli(object.lastModified))))
+                        .append(element("ETag", "\"" + object.etag + "\""))
+                        .append(element("Size", String.valueOf(object.data.length)))
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+                last = key;
+                lastPrefix = false;
+            }
+            count++;
+        }
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + NAMESPACE + "\">")
+                .append(element("Name", bucket.name))
+                .append(element("Prefix", encode(prefix, url)))
+                .append(element("KeyCount", String.valueOf(count)))
+                .append(element("MaxKeys", String.valueOf(maxKeys)))
+                .append(element("IsTruncated", String.valueOf(truncated)));
+        if (delimiter != null) {
+            xml.append(element("Delimiter", encode(delimiter, url)));
+        }
+        if (url) {
+            xml.append("<EncodingType>url</EncodingType>");
+        }
+        if (token != null) {
+            xml.append(element("ContinuationToken", token));
+        }
+        if (truncated) {
+            //公共前缀之后的key都属于该前缀，下一页从前缀的最大值之后开始
+            String next = lastPrefix ? last + Character.MAX_VALUE : last;
+            xml.append(element("NextContinuationToken",
+                    Base64.getUrlEncoder().encodeToString(next.getBytes(StandardCharsets.UTF_8))));
+        }
+        xml.append(contents).append("</ListBucketResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void listUploads(HttpExchange exchange, Request request) throws IOException {
+        Bucket bucket = bucket(request);
+        String prefix = request.query.getOrDefault("prefix", "");
+        String keyMarker = request.query.getOrDefault("key-marker", "");
+        String uploadIdMarker = request.query.getOrDefault("upload-id-marker", "");
+        int maxUploads = Integer.parseInt(request.query.getOrDefault("max-uploads", "1000"));
+        boolean url = "url".equals(request.query.get("encoding-type"));
+        List<Upload> uploads = new ArrayList<>();
+        for (Upload upload : bucket.uploads.values()) {
+            int compare = upload.key.compareTo(keyMarker);
+            boolean after = compare > 0
+                    || compare == 0 && !uploadIdMarker.isEmpty() && upload.id.compareTo(uploadIdMarker) > 0;
+            if (upload.key.startsWith(prefix) && after) {
+                uploads.add(upload);
+            }
+        }
+        uploads.sort((a, b) -> a.key.equals(b.key) ? a.id.compareTo(b.id) : a.key.compareTo(b.key));
+        boolean truncated = uploads.size() > maxUploads;
+        if (truncated) {
+            uploads = uploads.subList(0, maxUploads);
+        }
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult xmlns=\"" + NAMESPACE + "\">")
+                .append(element("Bucket", bucket.name))
+                .append(element("KeyMarker", encode(keyMarker, url)))
+                .append(element("UploadIdMarker", uploadIdMarker))
+                .append(element("Prefix", encode(prefix, url)))
+                .append(element("MaxUploads", String.valueOf(maxUploads)))
+                .append(element("IsTruncated", String.valueOf(truncated)));
+        if (url) {
+            xml.append("<EncodingType>url</EncodingType>");
+        }
+        if (truncated) {
+            Upload last = uploads.get(uploads.size() - 1);
+            xml.append(element("NextKeyMarker", encode(last.key, url)))
+                    .append(element("NextUploadIdMarker", last.id));
+        }
+        for (Upload upload : uploads) {
+            xml.append("<Upload>").append(element("Key", encode(upload.key, url)))
+                    .append(element("UploadId", upload.id))
+                    .append("<Initiator><ID>fake</ID><DisplayName>fake</DisplayName></Initiator>")
+                    .append("<Owner><ID>fake</ID><DisplayName>fake</DisplayName></Owner>")
+                    .append("<StorageClass>STANDARD</StorageClass>")
+                    .append(element("Initiated", XML_DATE.format(Instant.ofEpochMilli(upload.initiated))))
+                    .append("</Upload>");
+        }
+        xml.append("</ListMultipartUploadsResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void listParts(HttpExchange exchange, Request request) throws IOException {
+        Upload upload = bucket(request).uploads.get(request.query.get("uploadId"));
+        if (upload == null) {
+            throw noSuchUpload();
+        }
+        int marker = Integer.parseInt(request.query.getOrDefault("part-number-marker", "0"));
+        int maxParts = Integer.parseInt(request.query.getOrDefault("max-parts", "1000"));
+        StringBuilder parts = new StringBuilder();
+        int count = 0;
+        int last = marker;
+        boolean truncated = false;
+        for (Map.Entry<Integer, byte[]> entry : upload.parts.tailMap(marker, false).entrySet()) {
+            if (count == maxParts) {
+                truncated = true;
+                break;
+            }
+            parts.append("<Part>").append(element("PartNumber", String.valueOf(entry.getKey())))
+                    .append(element("LastModified", XML_DATE.format(Instant.ofEpochMilli(upload.initiated))))
+                    .append(element("ETag", "\"" + FakeS3Store.md5(entry.getValue()) + "\""))
+                    .append(element("Size", String.valueOf(entry.getValue().length)))
+                    .append("</Part>");
+            last = entry.getKey();
+            count++;
+        }
+        xml(exchange, 200, "<ListPartsResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Bucket", request.bucket) + element("Key", upload.key) + element("UploadId", upload.id)
+                + "<Initiator><ID>fake</ID><DisplayName>fake</DisplayName></Initiator>"
+                + "<Owner><ID>fake</ID><DisplayName>fake</DisplayName></Owner>"
+                + element("PartNumberMarker", String.valueOf(marker))
+                + element("NextPartNumberMarker", String.valueOf(last))
+                + element("MaxParts", String.valueOf(maxParts))
+                + element("IsTruncated", String.valueOf(truncated))
+                + "<StorageClass>STANDARD</StorageClass>" + parts + "</ListPartsResult>");
+    }
+
+    private void getObject(HttpExchange exchange, Request request, boolean body) throws IOException {
+        StoredObject object = object(request.bucket, request.key);
+        Headers requestHeaders = exchange.getRequestHeaders();
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", "\"" + object.etag + "\"");
+        headers.set("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(object.lastModified)));
+        int status = precondition(requestHeaders.getFirst("If-Match"), requestHeaders.getFirst("If-None-Match"),
+                requestHeaders.getFirst("If-Modified-Since"), requestHeaders.getFirst("If-Unmodified-Since"), object);
+        if (status == 304) {
+            empty(exchange, 304);
+            return;
+        }
+        if (status == 412) {
+            throw new S3Exception(412, "PreconditionFailed",
+                    "At least one of the pre-conditions you specified did not hold");
+        }
+        headers.set("Accept-Ranges", "bytes");
+        headers.set("Content-Type", object.metadata.getOrDefault("content-type", "application/octet-stream"));
+        for (Map.Entry<String, String> entry : object.metadata.entrySet()) {
+            if (!"content-type".equals(entry.getKey())) {
+                headers.set(entry.getKey(), entry.getValue());
+            }
+        }
+        int length = object.data.length;
+        int start = 0;
+        int end = length - 1;
+        String range = requestHeaders.getFirst("Range");
+        if (range != null) {
+            long[] bounds = range(range, length);
+            if (bounds == null) {
+                headers.set("Content-Range", "bytes */" + length);
+                throw new S3Exception(416, "InvalidRange", "The requested range is not satisfiable");
+            }
+            start = (int) bounds[0];
+            end = (int) bounds[1];
+            headers.set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+        int responseCode = range == null ? 200 : 206;
+        int size = end - start + 1;
+        if (!body) {
+            //HEAD请求不返回响应体，需手动设置长度
+            headers.set("Content-Length", String.valueOf(size));
+            sendHeaders(exchange, responseCode, -1);
+            return;
+        }
+        sendHeaders(exchange, responseCode, size == 0 ? -1 : size);
+        write(exchange.getResponseBody(), object.data, start, size);
+    }
+
+    private void putObject(HttpExchange exchange, Request request) throws IOException {
+        Bucket bucket = bucket(request);
+        byte[] data = readBody(exchange);
+        Headers headers = exchange.getRequestHeaders();
+        String ifMatch = headers.getFirst("If-Match");
+        String ifNoneMatch = headers.getFirst("If-None-Match");
+        String etag = FakeS3Store.md5(data);
+        StoredObject object = new StoredObject(data, etag, metadata(headers));
+        //条件写入，文件不存在时If-Match不满足，存在时If-None-Match: *不满足
+        synchronized (bucket) {
+            StoredObject existing = bucket.objects.get(request.key);
+            if (ifMatch != null && (existing == null || !etagMatches(ifMatch, existing.etag))
+                    || ifNoneMatch != null && existing != null && etagMatches(ifNoneMatch, existing.etag)) {
+                throw new S3Exception(412, "PreconditionFailed",
+                        "At least one of the pre-conditions you specified did not hold");
+            }
+            bucket.objects.put(request.key, object);
+        }
+        exchange.getResponseHeaders().set("ETag", "\"" + etag + "\"");
+        empty(exchange, 200);
+    }
+
+    private void deleteObject(HttpExchange exchange, Request request) {
+        Bucket bucket = bucket(request);
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        //条件删除，文件不存在或etag不匹配时不满足
+        synchronized (bucket) {
+            StoredObject existing = bucket.objects.get(request.key);
+            if (ifMatch != null && (existing == null || !etagMatches(ifMatch, existing.etag))) {
+                throw new S3Exception(412, "PreconditionFailed",
+                        "At least one of the pre-conditions you specified did not hold");
+            }
+            bucket.objects.remove(request.key);
+        }
+    }
+
+    private void uploadPart(HttpExchange exchange, Request request) throws IOException {
+        Upload upload = bucket(request).uploads.get(request.query.get("uploadId"));
+        if (upload == null) {
+            readBody(exchange);
+            throw noSuchUpload();
+        }
+        int partNumber = Integer.parseInt(request.query.get("partNumber"));
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource == null) {
+            byte[] data = readBody(exchange);
+            upload.parts.put(partNumber, data);
+            exchange.getResponseHeaders().set("ETag", "\"" + FakeS3Store.md5(data) + "\"");
+            empty(exchange, 200);
+            return;
+        }
+        StoredObject source = copySource(exchange);
+        byte[] data = source.data;
+        String range = exchange.getRequestHeaders().getFirst("x-amz-copy-source-range");
+        if (range != null) {
+            long[] bounds = range(range, data.length);
+            if (bounds == null) {
+                throw new S3Exception(416, "InvalidRange", "The requested range is not satisfiable");
+            }
+            byte[] slice = new byte[(int) (bounds[1] - bounds[0] + 1)];
+            System.arraycopy(data, (int) bounds[0], slice, 0, slice.length);
+            data = slice;
+        }
+        upload.parts.put(partNumber, data);
+        xml(exchange, 200, "<CopyPartResult xmlns=\"" + NAMESPACE + "\">"
+                + element("LastModified", XML_DATE.format(Instant.now()))
+                + element("ETag", "\"" + FakeS3Store.md5(data) + "\"") + "</CopyPartResult>");
+    }
+
+    private void copyObject(HttpExchange exchange, Request request) throws IOException {
+        Bucket bucket = bucket(request);
+        StoredObject source = copySource(exchange);
+        Map<String, String> metadata = "REPLACE".equalsIgnoreCase(
+                exchange.getRequestHeaders().getFirst("x-amz-metadata-directive"))
+                ? metadata(exchange.getRequestHeaders()) : source.metadata;
+        StoredObject copy = new StoredObject(source.data, source.etag, new HashMap<>(metadata));
+        bucket.objects.put(request.key, copy);
+        xml(exchange, 200, "<CopyObjectResult xmlns=\"" + NAMESPACE + "\">"
+                + element("LastModified", XML_DATE.format(Instant.ofEpochMilli(copy.lastModified)))
+                + element("ETag", "\"" + copy.etag + "\"") + "</CopyObjectResult>");
+    }
+
+    private void completeUpload(HttpExchange exchange, Request request) throws IOException {
+        Bucket bucket = bucket(request);
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        Upload upload = bucket.uploads.get(request.query.get("uploadId"));
+        if (upload == null) {
+            throw noSuchUpload();
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        int count = 0;
+        Matcher matcher = PART.matcher(body);
+        while (matcher.find()) {
+            byte[] part = upload.parts.get(Integer.parseInt(matcher.group(1)));
+            String etag = unescape(matcher.group(2)).replace("\"", "");
+            if (part == null || !FakeS3Store.md5(part).equals(etag)) {
+                throw new S3Exception(400, "InvalidPart", "One or more of the specified parts could not be found.");
+            }
+            data.write(part, 0, part.length);
+            for (int i = 0; i < etag.length(); i += 2) {
+                digests.write(Integer.parseInt(etag.substring(i, i + 2), 16));
+            }
+            count++;
+        }
+        if (count == 0) {
+            throw new S3Exception(400, "MalformedXML", "The XML you provided was not well-formed.");
+        }
+        String etag = FakeS3Store.md5(digests.toByteArray()) + "-" + count;
+        bucket.objects.put(upload.key, new StoredObject(data.toByteArray(), etag, upload.metadata));
+        bucket.uploads.remove(upload.id);
+        xml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Location", "/" + bucket.name + "/" + upload.key)
+                + element("Bucket", bucket.name) + element("Key", upload.key)
+                + element("ETag", "\"" + etag + "\"") + "</CompleteMultipartUploadResult>");
+    }
+
+    private void deleteObjects(HttpExchange exchange, Request request) throws IOException {
+        Bucket bucket = bucket(request);
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        boolean quiet = body.contains("<Quiet>true</Quiet>");
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + NAMESPACE + "\">");
+        Matcher matcher = KEY.matcher(body);
+        while (matcher.find()) {
+            String key = unescape(matcher.group(1));
+            bucket.objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted>").append(element("Key", key)).append("</Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    /**
+     * 读取复制源文件并校验复制条件
+     */
+    private StoredObject copySource(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+        Headers headers = exchange.getRequestHeaders();
+        String source = decode(headers.getFirst("x-amz-copy-source"));
+        int query = source.indexOf('?');
+        source = query < 0 ? source : source.substring(0, query);
+        source = source.startsWith("/") ? source.substring(1) : source;
+        int slash = source.indexOf('/');
+        if (slash <= 0) {
+            throw new S3Exception(400, "InvalidArgument", "Copy Source must mention the source bucket and key");
+        }
+        StoredObject object = object(source.substring(0, slash), source.substring(slash + 1));
+        if (precondition(headers.getFirst("x-amz-copy-source-if-match"),
+                headers.getFirst("x-amz-copy-source-if-none-match"),
+                headers.getFirst("x-amz-copy-source-if-modified-since"),
+                headers.getFirst("x-amz-copy-source-if-unmodified-since"), object) != 0) {
+            throw new S3Exception(412, "PreconditionFailed",
+                    "At least one of the pre-conditions you specified did not hold");
+        }
+        return object;
+    }
+
+    /**
+     * 条件请求判断
+     *
+     * @return 0：满足条件，304：未修改，412：条件不满足
+     */
+    private static int precondition(String ifMatch, String ifNoneMatch, String ifModifiedSince,
+                                    String ifUnmodifiedSince, StoredObject object) {
+        long modified = object.lastModified / 1000;
+        if (ifMatch != null && !etagMatches(ifMatch, object.etag)) {
+            return 412;
+        }
+        Long unmodifiedSince = parseDate(ifUnmodifiedSince);
+        if (ifMatch == null && unmodifiedSince != null && modified > unmodifiedSince) {
+            return 412;
+        }
+        if (ifNoneMatch != null) {
+            return etagMatches(ifNoneMatch, object.etag) ? 304 : 0;
+        }
+        Long modifiedSince = parseDate(ifModifiedSince);
+        return modifiedSince != null && modified <= modifiedSince ? 304 : 0;
+    }
+
+    private static boolean etagMatches(String header, String etag) {
+        for (String value : header.split(",")) {
+            String candidate = value.trim().replace("\"", "");
+            if ("*".equals(candidate) || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Long parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, HTTP_DATE).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析单段Range
+     *
+     * @return 起止位置，不能满足时为null
+     */
+    private static long[] range(String range, long length) {
+        Matcher matcher = RANGE.matcher(range.trim());
+        if (!matcher.matches() || matcher.group(1).isEmpty() && matcher.group(2).isEmpty()) {
+            throw new S3Exception(400, "InvalidArgument", "Invalid range: " + range);
+        }
+        long start;
+        long end;
+        if (matcher.group(1).isEmpty()) {
+            start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+            end = length - 1;
+        } else {
+            start = Long.parseLong(matcher.group(1));
+            end = matcher.group(2).isEmpty() ? length - 1 : Math.min(length - 1, Long.parseLong(matcher.group(2)));
+        }
+        return start >= length || start > end ? null : new long[]{start, end};
+    }
+
+    private Bucket bucket(Request request) {
+        Bucket bucket = store.bucket(request.bucket);
+        if (bucket == null) {
+            throw new S3Exception(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+        return bucket;
+    }
+
+    private StoredObject object(String bucketName, String key) {
+        Bucket bucket = store.bucket(bucketName);
+        if (bucket == null) {
+            throw new S3Exception(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+        StoredObject object = bucket.objects.get(key);
+        if (object == null) {
+            throw new S3Exception(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        return object;
+    }
+
+    /**
+     * 请求头中的Content-Type与x-amz-meta-元数据，名称小写
+     */
+    private static Map<String, String> metadata(Headers headers) {
+        Map<String, String> metadata = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (STORED_HEADERS.contains(name) || name.startsWith("x-amz-meta-")) {
+                metadata.put(name, entry.getValue().get(0));
+            }
+        }
+        return metadata;
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        long start = System.nanoTime();
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+            total += n;
+            throttle(start, total);
+        }
+        return out.toByteArray();
+    }
+
+    private void write(OutputStream out, byte[] data, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        int written = 0;
+        while (written < length) {
+            int n = Math.min(CHUNK_SIZE, length - written);
+            out.write(data, offset + written, n);
+            written += n;
+            throttle(start, written);
+        }
+    }
+
+    /**
+     * 按带宽上限等待
+     */
+    private void throttle(long start, long bytes) {
+        long bandwidth = faults.getBandwidth();
+        if (bandwidth <= 0) {
+            return;
+        }
+        long expected = TimeUnit.SECONDS.toNanos(1) * bytes / bandwidth;
+        long elapsed = System.nanoTime() - start;
+        if (expected > elapsed) {
+            sleep(TimeUnit.NANOSECONDS.toMillis(expected - elapsed));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void xml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] data = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        sendHeaders(exchange, status, data.length);
+        write(exchange.getResponseBody(), data, 0, data.length);
+    }
+
+    private static void empty(HttpExchange exchange, int status) throws IOException {
+        sendHeaders(exchange, status, -1);
+    }
+
+    /**
+     * 发送响应头前读完请求体，请求体未读到结尾时连接不会被复用
+     */
+    private static void sendHeaders(HttpExchange exchange, int status, long length) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        while (in.read(buffer) >= 0) {
+            //丢弃未读取的请求体
+        }
+        exchange.sendResponseHeaders(status, length);
+    }
+
+    private void error(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            empty(exchange, status);
+            return;
+        }
+        xml(exchange, status, "<Error>" + element("Code", code) + element("Message", message)
+                + element("Resource", exchange.getRequestURI().getRawPath())
+                + element("RequestId", exchange.getResponseHeaders().getFirst("x-amz-request-id"))
+                + "<HostId>fake</HostId></Error>");
+    }
+
+    private static S3Exception notImplemented() {
+        return new S3Exception(501, "NotImplemented",
+                "A header or query you provided implies functionality that is not implemented.");
+    }
+
+    private static S3Exception noSuchUpload() {
+        return new S3Exception(404, "NoSuchUpload", "The specified multipart upload does not exist.");
+    }
+
+    private static String element(String name, String value) {
+        return "<" + name + ">" + escape(value) + "</" + name + ">";
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&apos;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private static String encode(String value, boolean url) {
+        if (!url) {
+            return value;
+        }
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 百分号解码，+不作为空格
+     */
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 路径风格的请求，/桶名称/文件名称
+     */
+    private static final class Request {
+        private final String bucket;
+        private final String key;
+        private final Map<String, String> query = new LinkedHashMap<>();
+
+        private Request(HttpExchange exchange) {
+            String path = exchange.getRequestURI().getRawPath();
+            path = path.startsWith("/") ? path.substring(1) : path;
+            int slash = path.indexOf('/');
+            String bucketName = slash < 0 ? path : path.substring(0, slash);
+            String objectName = slash < 0 ? "" : path.substring(slash + 1);
+            this.bucket = bucketName.isEmpty() ? null : decode(bucketName);
+            this.key = objectName.isEmpty() ? null : decode(objectName);
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null && !rawQuery.isEmpty()) {
+                for (String parameter : rawQuery.split("&")) {
+                    int equals = parameter.indexOf('=');
+                    query.put(decode(equals < 0 ? parameter : parameter.substring(0, equals)),
+                            equals < 0 ? "" : decode(parameter.substring(equals + 1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回给客户端的S3错误
+     */
+    private static final class S3Exception extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final String code;
+
+        private S3Exception(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+}
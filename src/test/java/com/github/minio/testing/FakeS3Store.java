@@ -0,0 +1,121 @@
+package com.github.minio.testing;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 模拟S3服务的内存存储
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+class FakeS3Store {
+
+    private final ConcurrentSkipListMap<String, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    Bucket bucket(String name) {
+        return buckets.get(name);
+    }
+
+    /**
+     * 创建桶
+     *
+     * @param name 桶名称
+     * @return 已存在时为false
+     */
+    boolean createBucket(String name) {
+        return buckets.putIfAbsent(name, new Bucket(name)) == null;
+    }
+
+    void removeBucket(String name) {
+        buckets.remove(name);
+    }
+
+    List<Bucket> buckets() {
+        return new ArrayList<>(buckets.values());
+    }
+
+    static String md5(byte[]... chunks) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            for (byte[] chunk : chunks) {
+                digest.update(chunk);
+            }
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 桶
+     */
+    static final class Bucket {
+        final String name;
+        final long created = System.currentTimeMillis();
+        final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+        final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+        private Bucket(String name) {
+            this.name = name;
+        }
+
+        Upload createUpload(String key, Map<String, String> metadata) {
+            Upload upload = new Upload(key, UUID.randomUUID().toString(), metadata);
+            uploads.put(upload.id, upload);
+            return upload;
+        }
+    }
+
+    /**
+     * 文件
+     */
+    static final class StoredObject {
+        final byte[] data;
+        final String etag;
+        final long lastModified = System.currentTimeMillis();
+        /**
+         * Content-Type与x-amz-meta-开头的元数据
+         */
+        final Map<String, String> metadata;
+
+        StoredObject(byte[] data, String etag, Map<String, String> metadata) {
+            this.data = data;
+            this.etag = etag;
+            this.metadata = Collections.unmodifiableMap(metadata);
+        }
+    }
+
+    /**
+     * 分片上传
+     */
+    static final class Upload {
+        final String key;
+        final String id;
+        final long initiated = System.currentTimeMillis();
+        final Map<String, String> metadata;
+        final NavigableMap<Integer, byte[]> parts = new ConcurrentSkipListMap<>();
+
+        private Upload(String key, String id, Map<String, String> metadata) {
+            this.key = key;
+            this.id = id;
+            this.metadata = metadata;
+        }
+    }
+}
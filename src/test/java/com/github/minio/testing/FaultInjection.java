@@ -0,0 +1,70 @@
+package com.github.minio.testing;
+
+/**
+ * 模拟S3服务的故障注入配置，运行时修改立即生效
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class FaultInjection {
+    /**
+     * 每个请求的固定延迟，单位：毫秒
+     */
+    private volatile long latency;
+    /**
+     * 在固定延迟上增加的随机延迟上限，单位：毫秒
+     */
+    private volatile long latencyJitter;
+    /**
+     * 每个连接的带宽上限，单位：字节/秒，为0时不限制
+     */
+    private volatile long bandwidth;
+    /**
+     * 返回503 SlowDown的请求比例，0到1
+     */
+    private volatile double throttleRate;
+    /**
+     * 返回500 InternalError的请求比例，0到1
+     */
+    private volatile double errorRate;
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    public long getLatencyJitter() {
+        return latencyJitter;
+    }
+
+    public void setLatencyJitter(long latencyJitter) {
+        this.latencyJitter = latencyJitter;
+    }
+
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    public void setBandwidth(long bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+}
@@ -0,0 +1,350 @@
+package com.github.minio.testing;
+
+import com.github.minio.autoconfigure.MinioClientFactory;
+import com.github.minio.autoconfigure.MinioProperties;
+import com.github.minio.core.MinioOperations;
+import com.github.minio.core.MinioTemplate;
+import okhttp3.OkHttpClient;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测工具，多线程按读写比例上传与读取文件，统计吞吐量与各操作的耗时分位数
+ * <p>
+ * 运行前先上传一批文件供读取；可直接运行main方法，未指定endpoint时连接进程内的模拟S3服务
+ *
+ * @author ArchieSean
+ * @create 2023/6/23
+ */
+public class MinioLoadGenerator {
+
+    private static final Log log = LogFactory.getLog(MinioLoadGenerator.class);
+
+    /**
+     * 预先上传供读取的文件数
+     */
+    private static final int SEED_OBJECTS = 64;
+
+    /**
+     * 预先上传的最大尝试次数
+     */
+    private static final int SEED_ATTEMPTS = 5;
+
+    private final MinioOperations operations;
+
+    private final String bucketName;
+
+    /**
+     * 并发线程数
+     */
+    private int threads = 8;
+
+    /**
+     * 运行时长，单位：毫秒
+     */
+    private long duration = 10000;
+
+    /**
+     * 上传文件大小，单位：字节
+     */
+    private int objectSize = 64 * 1024;
+
+    /**
+     * 读取操作的比例，0到1
+     */
+    private double readRatio = 0.8;
+
+    /**
+     * 文件名称前缀
+     */
+    private String prefix = "load-test/";
+
+    public MinioLoadGenerator(MinioOperations operations, String bucketName) {
+        this.operations = operations;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * 运行压测，运行结束后删除上传的文件
+     *
+     * @return 压测结果
+     * @throws Exception 预先上传失败或线程被中断
+     */
+    public Report run() throws Exception {
+        byte[] data = new byte[objectSize];
+        ThreadLocalRandom.current().nextBytes(data);
+        List<String> seeds = new ArrayList<>();
+        for (int i = 0; i < SEED_OBJECTS; i++) {
+            String objectName = prefix + "seed-" + i;
+            //注入错误时预先上传也可能失败，重试几次
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    operations.uploadFileWithPart(bucketName, objectName, new ByteArrayInputStream(data),
+                            (long) data.length, "application/octet-stream");
+                    break;
+                } catch (Exception e) {
+                    if (attempt == SEED_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+            seeds.add(objectName);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+        List<Future<Worker>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> new Worker(index).run(deadline, data, seeds)));
+        }
+        Report report = new Report();
+        List<String> written = new ArrayList<>();
+        try {
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                report.reads.addAll(worker.reads);
+                report.writes.addAll(worker.writes);
+                report.bytes += worker.bytes;
+                report.errors += worker.errors;
+                written.addAll(worker.written);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        report.elapsed = System.nanoTime() - start;
+        written.addAll(seeds);
+        for (String objectName : written) {
+            try {
+                operations.removeObject(bucketName, objectName);
+            } catch (Exception e) {
+                //清理失败不影响结果
+            }
+        }
+        return report;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public void setObjectSize(int objectSize) {
+        this.objectSize = objectSize;
+    }
+
+    public void setReadRatio(double readRatio) {
+        this.readRatio = readRatio;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * 压测线程，耗时单位：纳秒
+     */
+    private final class Worker {
+        private final int index;
+        private final List<Long> reads = new ArrayList<>();
+        private final List<Long> writes = new ArrayList<>();
+        private final List<String> written = new ArrayList<>();
+        private long bytes;
+        private long errors;
+
+        private Worker(int index) {
+            this.index = index;
+        }
+
+        private Worker run(long deadline, byte[] data, List<String> seeds) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            byte[] buffer = new byte[8192];
+            long sequence = 0;
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                boolean read = random.nextDouble() < readRatio;
+                long begin = System.nanoTime();
+                try {
+                    if (read) {
+                        String objectName = seeds.get(random.nextInt(seeds.size()));
+                        try (InputStream in = operations.getObject(bucketName, objectName)) {
+                            int n;
+                            while ((n = in.read(buffer)) >= 0) {
+                                bytes += n;
+                            }
+                        }
+                        reads.add(System.nanoTime() - begin);
+                    } else {
+                        String objectName = prefix + "worker-" + index + "-" + sequence++;
+                        operations.uploadFileWithPart(bucketName, objectName, new ByteArrayInputStream(data),
+                                (long) data.length, "application/octet-stream");
+                        written.add(objectName);
+                        bytes += data.length;
+                        writes.add(System.nanoTime() - begin);
+                    }
+                } catch (Exception e) {
+                    errors++;
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 压测结果
+     */
+    public static class Report {
+        private final List<Long> reads = new ArrayList<>();
+        private final List<Long> writes = new ArrayList<>();
+        private long bytes;
+        private long errors;
+        private long elapsed;
+
+        /**
+         * 每秒成功的操作数
+         *
+         * @return double
+         */
+        public double getOpsPerSecond() {
+            return (reads.size() + writes.size()) / seconds();
+        }
+
+        /**
+         * 每秒传输的字节数
+         *
+         * @return double
+         */
+        public double getBytesPerSecond() {
+            return bytes / seconds();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * 读取耗时分位数
+         *
+         * @param quantile 分位，0到1
+         * @return 耗时，单位：毫秒，无读取时为0
+         */
+        public double getReadLatency(double quantile) {
+            return percentile(reads, quantile);
+        }
+
+        /**
+         * 上传耗时分位数
+         *
+         * @param quantile 分位，0到1
+         * @return 耗时，单位：毫秒，无上传时为0
+         */
+        public double getWriteLatency(double quantile) {
+            return percentile(writes, quantile);
+        }
+
+        private double seconds() {
+            return Math.max(elapsed, 1) / 1e9;
+        }
+
+        private static double percentile(List<Long> latencies, double quantile) {
+            if (latencies.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index))) / 1e6;
+        }
+
+        private String line(String name, List<Long> latencies) {
+            return String.format("%-5s count=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", name,
+                    latencies.size(), percentile(latencies, 0.5), percentile(latencies, 0.9),
+                    percentile(latencies, 0.99), percentile(latencies, 1));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("throughput=%.1f ops/s, %.2f MB/s, errors=%d%n%s%n%s", getOpsPerSecond(),
+                    getBytesPerSecond() / (1024 * 1024), errors, line("read", reads), line("write", writes));
+        }
+    }
+
+    /**
+     * 命令行入口，参数格式为key=value：endpoint、accessKey、secretKey、bucket、threads、duration、objectSize、readRatio，
+     * 未指定endpoint时启动模拟S3服务，此时可用latency、latencyJitter、bandwidth、throttleRate、errorRate注入故障，结果输出到日志
+     *
+     * @param args 参数
+     * @throws Exception 压测失败
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                options.put(arg.substring(0, equals), arg.substring(equals + 1));
+            }
+        }
+        String bucket = options.getOrDefault("bucket", "load-test");
+        MinioProperties properties = new MinioProperties();
+        properties.setBucketName(bucket);
+        FakeS3Server server = null;
+        String endpoint;
+        if (options.containsKey("endpoint")) {
+            endpoint = options.get("endpoint");
+            properties.setAccessKey(options.get("accessKey"));
+            properties.setSecretKey(options.get("secretKey"));
+        } else {
+            server = new FakeS3Server().start();
+            server.createBucket(bucket);
+            FaultInjection faults = server.getFaults();
+            faults.setLatency(Long.parseLong(options.getOrDefault("latency", "0")));
+            faults.setLatencyJitter(Long.parseLong(options.getOrDefault("latencyJitter", "0")));
+            faults.setBandwidth(Long.parseLong(options.getOrDefault("bandwidth", "0")));
+            faults.setThrottleRate(Double.parseDouble(options.getOrDefault("throttleRate", "0")));
+            faults.setErrorRate(Double.parseDouble(options.getOrDefault("errorRate", "0")));
+            endpoint = server.getEndpoint();
+            properties.setAccessKey("fake");
+            properties.setSecretKey("fake-secret");
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        //并发线程数超过默认的每主机请求数时放开限制
+        properties.setMaxRequests(Math.max(properties.getMaxRequests(), threads));
+        properties.setMaxIdleConnections(Math.max(properties.getMaxIdleConnections(), threads));
+        MinioClientFactory clientFactory = new MinioClientFactory(properties, endpoint);
+        MinioTemplate template = new MinioTemplate();
+        template.setProperties(properties);
+        template.setMinioClient(clientFactory.createClient());
+        template.setMinioAsyncClientSupplier(clientFactory::createAsyncClient);
+        try {
+            MinioLoadGenerator generator = new MinioLoadGenerator(template, bucket);
+            generator.setThreads(threads);
+            generator.setDuration(Long.parseLong(options.getOrDefault("duration", "10000")));
+            generator.setObjectSize(Integer.parseInt(options.getOrDefault("objectSize", String.valueOf(64 * 1024))));
+            generator.setReadRatio(Double.parseDouble(options.getOrDefault("readRatio", "0.8")));
+            log.info("minio load test finished, " + generator.run());
+        } finally {
+            //http客户端的分发线程空闲一段时间后才结束，关闭后进程可立即退出
+            OkHttpClient httpClient = clientFactory.getHttpClient();
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}